@@ -0,0 +1,244 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.CharsetUtil;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 缓存里保存的一条已经编码好的响应
+ * 每个版本（不压缩、gzip、deflate）在buffer里依次是：不带协议版本的状态行、除Connection外的响应头、响应体；
+ * 协议版本、Connection头和空行在发送时按请求和连接情况补上，
+ * 这样同一份缓存既能发给HTTP/1.1和HTTP/1.0的客户端，也能发给长连接和短连接
+ * 压缩版本只在放进缓存时压缩一次，所有版本放在同一块buffer里，共用一个引用计数
+ * 引用计数记在这个对象上而不是直接用buffer的：池化的buffer释放后会被复用，
+ * 其它线程在淘汰之后才retain时必须能可靠地失败，不能retain到别人的buffer上
+ */
+public final class CachedHttpResponse extends AbstractReferenceCounted {
+    private static final ByteBuf HTTP_1_1_PREFIX = constant(HttpVersion.HTTP_1_1.text() + " ");
+    private static final ByteBuf HTTP_1_0_PREFIX = constant(HttpVersion.HTTP_1_0.text() + " ");
+    private static final ByteBuf KEEP_ALIVE_TRAILER = trailer("keep-alive");
+    private static final ByteBuf CLOSE_TRAILER = trailer("close");
+    private static final ZlibWrapper[] COMPRESSED = {ZlibWrapper.GZIP, ZlibWrapper.ZLIB};
+
+    private final ByteBuf buffer;
+    //下标是ZlibWrapper的ordinal，NONE一定存在
+    private final Variant[] variants;
+    private final long expiresAt;
+
+    private CachedHttpResponse(ByteBuf buffer, Variant[] variants, long expiresAt) {
+        this.buffer = buffer;
+        this.variants = variants;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * 把响应编码进alloc分配的直接内存，响应里必须已经有ETag头
+     * 响应体符合压缩策略时同时编码gzip和deflate版本
+     */
+    public static CachedHttpResponse encode(FullHttpResponse response, ByteBufAllocator alloc,
+                                            HttpContentCompression compression, long expiresAt) {
+        HttpHeaders headers = response.headers();
+        ByteBuf content = response.content();
+        String contentType = headers.get(HttpHeaderNames.CONTENT_TYPE);
+        boolean compressible = !headers.contains(HttpHeaderNames.CONTENT_ENCODING)
+                && compression.shouldCompress(contentType, content.readableBytes());
+
+        ByteBuf[] bodies = new ByteBuf[ZlibWrapper.values().length];
+        bodies[ZlibWrapper.NONE.ordinal()] = content;
+        int capacity = content.readableBytes() + 256;
+        if (compressible) {
+            for (ZlibWrapper wrapper : COMPRESSED) {
+                ByteBuf compressed = compression.compress(alloc, content, wrapper, compression.level(contentType));
+                if (compressed.readableBytes() < content.readableBytes()) {
+                    bodies[wrapper.ordinal()] = compressed;
+                    capacity += compressed.readableBytes() + 256;
+                } else {
+                    compressed.release();
+                }
+            }
+        }
+
+        ByteBuf buffer = alloc.directBuffer(capacity);
+        Variant[] variants = new Variant[bodies.length];
+        try {
+            String etag = headers.get(HttpHeaderNames.ETAG);
+            for (int i = 0; i < bodies.length; i++) {
+                ByteBuf body = bodies[i];
+                if (body == null) {
+                    continue;
+                }
+                ZlibWrapper wrapper = ZlibWrapper.values()[i];
+                String variantEtag = wrapper == ZlibWrapper.NONE ? etag : variantEtag(etag, wrapper);
+                int headerIndex = buffer.writerIndex();
+                writeHeaders(buffer, response, compressible ? wrapper : null, body.readableBytes(), variantEtag);
+                int headerLength = buffer.writerIndex() - headerIndex;
+                buffer.writeBytes(body, body.readerIndex(), body.readableBytes());
+                variants[i] = new Variant(headerIndex, headerLength, body.readableBytes(), variantEtag);
+            }
+        } catch (RuntimeException e) {
+            buffer.release();
+            throw e;
+        } finally {
+            for (ZlibWrapper wrapper : COMPRESSED) {
+                if (bodies[wrapper.ordinal()] != null) {
+                    bodies[wrapper.ordinal()].release();
+                }
+            }
+        }
+        return new CachedHttpResponse(buffer, variants, expiresAt);
+    }
+
+    /**
+     * encoding为null表示这条响应没有压缩版本，原样写出响应头
+     */
+    private static void writeHeaders(ByteBuf buffer, FullHttpResponse response, ZlibWrapper encoding,
+                                     int contentLength, String etag) {
+        ByteBufUtil.writeAscii(buffer, response.status().codeAsText());
+        buffer.writeByte(' ');
+        ByteBufUtil.writeAscii(buffer, response.status().reasonPhrase());
+        buffer.writeByte('\r').writeByte('\n');
+
+        CharSequence vary = null;
+        Iterator<Map.Entry<CharSequence, CharSequence>> iterator = response.headers().iteratorCharSequence();
+        while (iterator.hasNext()) {
+            Map.Entry<CharSequence, CharSequence> header = iterator.next();
+            CharSequence name = header.getKey();
+            if (HttpHeaderNames.CONNECTION.contentEqualsIgnoreCase(name)
+                    || HttpHeaderNames.CONTENT_LENGTH.contentEqualsIgnoreCase(name)
+                    || HttpHeaderNames.ETAG.contentEqualsIgnoreCase(name)) {
+                continue;
+            }
+            if (encoding != null && HttpHeaderNames.VARY.contentEqualsIgnoreCase(name)) {
+                vary = header.getValue();
+                continue;
+            }
+            writeHeader(buffer, name, header.getValue());
+        }
+        if (encoding != null) {
+            if (encoding != ZlibWrapper.NONE) {
+                writeHeader(buffer, HttpHeaderNames.CONTENT_ENCODING,
+                        HttpContentCompression.contentEncoding(encoding));
+            }
+            writeHeader(buffer, HttpHeaderNames.VARY, vary == null
+                    ? HttpHeaderNames.ACCEPT_ENCODING : vary + ", " + HttpHeaderNames.ACCEPT_ENCODING);
+        }
+        writeHeader(buffer, HttpHeaderNames.CONTENT_LENGTH, Integer.toString(contentLength));
+        writeHeader(buffer, HttpHeaderNames.ETAG, etag);
+    }
+
+    private static void writeHeader(ByteBuf buffer, CharSequence name, CharSequence value) {
+        ByteBufUtil.writeAscii(buffer, name);
+        buffer.writeByte(':').writeByte(' ');
+        ByteBufUtil.writeAscii(buffer, value);
+        buffer.writeByte('\r').writeByte('\n');
+    }
+
+    /**
+     * 不同的压缩版本内容不同，强ETag也必须不同
+     */
+    private static String variantEtag(String etag, ZlibWrapper wrapper) {
+        String suffix = "-" + HttpContentCompression.contentEncoding(wrapper);
+        return etag.endsWith("\"") ? etag.substring(0, etag.length() - 1) + suffix + "\"" : etag + suffix;
+    }
+
+    public String etag(ZlibWrapper encoding) {
+        return select(encoding).etag;
+    }
+
+    public boolean isExpired(long now) {
+        return now - expiresAt >= 0;
+    }
+
+    /**
+     * 占用的字节数，用于缓存的容量统计
+     */
+    public int size() {
+        return buffer.capacity();
+    }
+
+    /**
+     * 状态行开头的协议版本和空格，HTTP/1.0以外的版本都按HTTP/1.1发送，所有响应共享
+     */
+    public static ByteBuf retainedVersion(HttpVersion version) {
+        return (HttpVersion.HTTP_1_0.equals(version) ? HTTP_1_0_PREFIX : HTTP_1_1_PREFIX).retainedDuplicate();
+    }
+
+    /**
+     * 不带协议版本的状态行和响应头（不含Connection头和结尾的空行）
+     */
+    public ByteBuf retainedHeaders(ZlibWrapper encoding) {
+        Variant variant = select(encoding);
+        return buffer.retainedSlice(variant.headerIndex, variant.headerLength);
+    }
+
+    /**
+     * Connection响应头加上头部结束的空行，所有响应共享
+     */
+    public static ByteBuf retainedTrailer(boolean keepAlive) {
+        return (keepAlive ? KEEP_ALIVE_TRAILER : CLOSE_TRAILER).retainedDuplicate();
+    }
+
+    public ByteBuf retainedBody(ZlibWrapper encoding) {
+        Variant variant = select(encoding);
+        return buffer.retainedSlice(variant.headerIndex + variant.headerLength, variant.bodyLength);
+    }
+
+    @Override
+    public CachedHttpResponse retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public CachedHttpResponse touch(Object hint) {
+        buffer.touch(hint);
+        return this;
+    }
+
+    /**
+     * 已经写出去的retainedSlice各自持有buffer的引用，不受影响
+     */
+    @Override
+    protected void deallocate() {
+        buffer.release();
+    }
+
+    private Variant select(ZlibWrapper encoding) {
+        Variant variant = variants[encoding.ordinal()];
+        return variant != null ? variant : variants[ZlibWrapper.NONE.ordinal()];
+    }
+
+    private static ByteBuf trailer(String connection) {
+        return constant(HttpHeaderNames.CONNECTION + ": " + connection + "\r\n\r\n");
+    }
+
+    private static ByteBuf constant(String text) {
+        byte[] bytes = text.getBytes(CharsetUtil.US_ASCII);
+        return Unpooled.unreleasableBuffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes).asReadOnly());
+    }
+
+    private static final class Variant {
+        private final int headerIndex;
+        private final int headerLength;
+        private final int bodyLength;
+        private final String etag;
+
+        private Variant(int headerIndex, int headerLength, int bodyLength, String etag) {
+            this.headerIndex = headerIndex;
+            this.headerLength = headerLength;
+            this.bodyLength = bodyLength;
+            this.etag = etag;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+
+/**
+ * 和TestHttpServerHandler使用同一套路由，但总是写出FullHttpResponse
+ * 用在h2c模式下：每个HTTP/2流经过Http2StreamFrameToHttpObjectCodec转换成HTTP对象后交给它处理，
+ * 没有升级的HTTP/1.1连接也由它处理
+ */
+public class FullHttpRouteHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    private final HttpRouter router;
+    private final RouteParams params = new RouteParams();
+
+    public FullHttpRouteHandler(HttpRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception {
+        Object result = router.route(request.uri(), params).handle(request, params);
+
+        //HTTP/2的流没有长短连接之分，Connection头在转换成HTTP/2头部时会被去掉
+        boolean http2 = ctx.channel() instanceof Http2StreamChannel;
+        boolean keepAlive = http2 || HttpUtil.isKeepAlive(request);
+        boolean head = HttpMethod.HEAD.equals(request.method());
+        HttpVersion version = request.protocolVersion();
+        if (result instanceof StreamingHttpResponse) {
+            //HTTP/1.0的流式响应体靠关闭连接结束
+            keepAlive &= head || StreamingHttpResponse.isChunkedSupported(version);
+            //HTTP/2下流的可写状态由流量控制窗口决定，ChunkedWriteHandler同样会在窗口用完时停下来
+            closeIfNeeded(((StreamingHttpResponse) result).write(ctx, version, keepAlive, head), keepAlive);
+            return;
+        }
+        FullHttpResponse response = result instanceof StaticHttpResponse
+                ? ((StaticHttpResponse) result).newFullHttpResponse() : (FullHttpResponse) result;
+        closeIfNeeded(ctx.write(TestHttpServerHandler.prepare(response, version, keepAlive, head)), keepAlive);
+    }
+
+    private static void closeIfNeeded(ChannelFuture future, boolean keepAlive) {
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        ctx.flush();
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        cause.printStackTrace();
+        ctx.close();
+    }
+}
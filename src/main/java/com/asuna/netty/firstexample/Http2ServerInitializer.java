@@ -0,0 +1,86 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2MultiplexCodec;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * h2c（明文HTTP/2）模式的初始化器，两种方式进入HTTP/2：
+ * 1. prior knowledge：客户端一上来就发送HTTP/2连接前言
+ * 2. HTTP/1.1的Upgrade: h2c请求
+ * 每个HTTP/2流是Http2MultiplexCodec创建的一个子Channel，多个请求在同一个连接上并发，头部用HPACK压缩；
+ * 子Channel里把流的帧转换成HTTP对象，交给和HTTP/1.1相同的路由处理
+ * 没有升级的HTTP/1.1请求也用同样的路由处理
+ */
+public class Http2ServerInitializer extends ChannelInitializer<SocketChannel> {
+    private static final int MAX_CONTENT_LENGTH = 1024 * 1024;
+
+    private final HttpRouter router;
+
+    //每个HTTP/2流的子Channel都用它初始化，必须是可以共享的
+    private final ChannelInitializer<Channel> streamInitializer = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(Channel ch) throws Exception {
+            ChannelPipeline pipeline = ch.pipeline();
+            pipeline.addLast(new Http2StreamFrameToHttpObjectCodec(true));
+            pipeline.addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH));
+            pipeline.addLast(new ChunkedWriteHandler());
+            pipeline.addLast(new FullHttpRouteHandler(router));
+        }
+    };
+
+    public Http2ServerInitializer() {
+        this(TestHttpServerHandler.DEFAULT_ROUTER);
+    }
+
+    public Http2ServerInitializer(HttpRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    protected void initChannel(SocketChannel ch) throws Exception {
+        ChannelPipeline pipeline = ch.pipeline();
+
+        HttpServerCodec sourceCodec = new HttpServerCodec();
+        HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(sourceCodec, protocol -> {
+            if (AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)) {
+                return new Http2ServerUpgradeCodec(newMultiplexCodec());
+            }
+            return null;
+        }, MAX_CONTENT_LENGTH);
+
+        pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(sourceCodec, upgradeHandler, newMultiplexCodec()));
+        //能走到这里说明客户端没有要求升级，按普通的HTTP/1.1处理
+        pipeline.addLast(new SimpleChannelInboundHandler<HttpMessage>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, HttpMessage msg) throws Exception {
+                ChannelPipeline pipeline = ctx.pipeline();
+                pipeline.addAfter(ctx.name(), null, new FullHttpRouteHandler(router));
+                pipeline.addAfter(ctx.name(), null, new ChunkedWriteHandler());
+                pipeline.replace(this, null, new HttpObjectAggregator(MAX_CONTENT_LENGTH));
+                ctx.fireChannelRead(ReferenceCountUtil.retain(msg));
+            }
+        });
+    }
+
+    private Http2MultiplexCodec newMultiplexCodec() {
+        //通过Upgrade升级时，升级请求本身会作为1号流交给同一个streamInitializer处理
+        return Http2MultiplexCodecBuilder.forServer(streamInitializer).build();
+    }
+}
@@ -0,0 +1,130 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.HttpHeaderValues;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 响应压缩的策略：小于threshold的响应体不压缩，按Content-Type决定压缩级别，没有配置的类型不压缩
+ * 压缩格式用ZlibWrapper表示：GZIP对应gzip，ZLIB对应deflate，NONE表示不压缩
+ * 对象不可变，可以在所有连接之间共享
+ */
+public final class HttpContentCompression {
+    public static final HttpContentCompression DEFAULT = new HttpContentCompression(1024, defaultLevels());
+
+    private final int threshold;
+    //key是完整的mime类型（text/html）或者通配（text/*），value是压缩级别1-9
+    private final Map<String, Integer> levels;
+
+    public HttpContentCompression(int threshold, Map<String, Integer> levels) {
+        this.threshold = threshold;
+        this.levels = Collections.unmodifiableMap(new HashMap<String, Integer>(levels));
+    }
+
+    /**
+     * 内容类型对应的压缩级别，返回-1表示这种类型不压缩
+     */
+    public int level(CharSequence contentType) {
+        if (contentType == null) {
+            return -1;
+        }
+        String mime = contentType.toString();
+        int semicolon = mime.indexOf(';');
+        if (semicolon >= 0) {
+            mime = mime.substring(0, semicolon);
+        }
+        mime = mime.trim().toLowerCase();
+        Integer level = levels.get(mime);
+        if (level == null) {
+            int slash = mime.indexOf('/');
+            level = slash < 0 ? null : levels.get(mime.substring(0, slash + 1) + "*");
+        }
+        return level == null ? -1 : level;
+    }
+
+    public boolean shouldCompress(CharSequence contentType, int length) {
+        return length >= threshold && level(contentType) > 0;
+    }
+
+    /**
+     * 把content压缩成一个新的ByteBuf，不改变content的读写索引
+     */
+    public ByteBuf compress(ByteBufAllocator alloc, ByteBuf content, ZlibWrapper wrapper, int level) {
+        EmbeddedChannel encoder = new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(wrapper, level));
+        encoder.writeOutbound(content.retainedDuplicate());
+        encoder.finish();
+        ByteBuf compressed = alloc.directBuffer(content.readableBytes() / 2 + 64);
+        for (;;) {
+            ByteBuf part = encoder.readOutbound();
+            if (part == null) {
+                break;
+            }
+            compressed.writeBytes(part);
+            part.release();
+        }
+        return compressed;
+    }
+
+    /**
+     * 根据Accept-Encoding选择压缩格式，q值相同时优先gzip，逻辑和HttpContentCompressor一致
+     */
+    public static ZlibWrapper negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return ZlibWrapper.NONE;
+        }
+        float starQ = -1.0f;
+        float gzipQ = -1.0f;
+        float deflateQ = -1.0f;
+        for (String encoding : acceptEncoding.split(",")) {
+            float q = 1.0f;
+            int equalsPos = encoding.indexOf('=');
+            if (equalsPos != -1) {
+                try {
+                    q = Float.parseFloat(encoding.substring(equalsPos + 1));
+                } catch (NumberFormatException e) {
+                    q = 0.0f;
+                }
+            }
+            if (encoding.contains("*")) {
+                starQ = q;
+            } else if (encoding.contains("gzip") && q > gzipQ) {
+                gzipQ = q;
+            } else if (encoding.contains("deflate") && q > deflateQ) {
+                deflateQ = q;
+            }
+        }
+        if (gzipQ > 0.0f || deflateQ > 0.0f) {
+            return gzipQ >= deflateQ ? ZlibWrapper.GZIP : ZlibWrapper.ZLIB;
+        }
+        if (starQ > 0.0f) {
+            if (gzipQ == -1.0f) {
+                return ZlibWrapper.GZIP;
+            }
+            if (deflateQ == -1.0f) {
+                return ZlibWrapper.ZLIB;
+            }
+        }
+        return ZlibWrapper.NONE;
+    }
+
+    public static CharSequence contentEncoding(ZlibWrapper wrapper) {
+        return wrapper == ZlibWrapper.GZIP ? HttpHeaderValues.GZIP : HttpHeaderValues.DEFLATE;
+    }
+
+    private static Map<String, Integer> defaultLevels() {
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        levels.put("text/*", 6);
+        levels.put("application/json", 6);
+        levels.put("application/javascript", 6);
+        levels.put("application/xml", 6);
+        levels.put("image/svg+xml", 9);
+        return levels;
+    }
+}
@@ -0,0 +1,80 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.*;
+
+import java.util.ArrayDeque;
+
+/**
+ * 动态响应的即时压缩，放在缓存处理器前面
+ * 只压缩后面处理器写出的FullHttpResponse；缓存和StaticHttpResponse写出的ByteBuf已经按Accept-Encoding选好了版本，直接放行
+ * 两个响应之间写出的ByteBuf必须是一个完整的响应，多段的预编码响应要先拼成CompositeByteBuf，否则队列会错位
+ * 没有使用Netty的HttpContentCompressor，是因为它按请求顺序排队的Accept-Encoding只有遇到HttpResponse才会出队，
+ * 直接写出的预编码ByteBuf会让队列错位
+ */
+public class HttpContentCompressionHandler extends ChannelDuplexHandler {
+    private final HttpContentCompression compression;
+
+    //还没有收到响应的请求协商出的压缩格式，按请求顺序排队
+    private final ArrayDeque<ZlibWrapper> pending = new ArrayDeque<ZlibWrapper>();
+    //出站方向正在写一个分段的响应
+    private boolean inMessage;
+
+    public HttpContentCompressionHandler(HttpContentCompression compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            pending.add(HttpMethod.HEAD.equals(request.method()) ? ZlibWrapper.NONE
+                    : HttpContentCompression.negotiate(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING)));
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse || (!inMessage && msg instanceof ByteBuf)) {
+            ZlibWrapper encoding = pending.poll();
+            if (encoding != null && encoding != ZlibWrapper.NONE && msg instanceof FullHttpResponse) {
+                msg = compress(ctx, (FullHttpResponse) msg, encoding);
+            }
+        }
+        if (msg instanceof HttpResponse) {
+            inMessage = true;
+        }
+        //流式响应的HttpChunkedInput最后会由ChunkedWriteHandler写出LastHttpContent
+        if (msg instanceof LastHttpContent || msg instanceof HttpChunkedInput) {
+            inMessage = false;
+        }
+        ctx.write(msg, promise);
+    }
+
+    private FullHttpResponse compress(ChannelHandlerContext ctx, FullHttpResponse response, ZlibWrapper encoding) {
+        HttpHeaders headers = response.headers();
+        String contentType = headers.get(HttpHeaderNames.CONTENT_TYPE);
+        ByteBuf content = response.content();
+        int code = response.status().code();
+        if (code < 200 || code == 204 || code == 304 || headers.contains(HttpHeaderNames.CONTENT_ENCODING)
+                || !compression.shouldCompress(contentType, content.readableBytes())) {
+            return response;
+        }
+        ByteBuf compressed = compression.compress(ctx.alloc(), content, encoding, compression.level(contentType));
+        if (compressed.readableBytes() >= content.readableBytes()) {
+            compressed.release();
+            return response;
+        }
+        FullHttpResponse result = response.replace(compressed);
+        response.release();
+        result.headers().set(HttpHeaderNames.CONTENT_ENCODING, HttpContentCompression.contentEncoding(encoding));
+        result.headers().set(HttpHeaderNames.CONTENT_LENGTH, compressed.readableBytes());
+        result.headers().add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        return result;
+    }
+}
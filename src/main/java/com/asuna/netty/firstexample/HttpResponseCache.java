@@ -0,0 +1,136 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.util.IllegalReferenceCountException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 所有连接共享的响应缓存，按字节数限制容量，超出时按LRU淘汰，每条缓存有过期时间
+ * 只缓存GET请求的响应，key是方法、Host和uri，HEAD请求复用GET的缓存只发送响应头；
+ * Accept-Encoding的不同版本保存在同一条缓存里，Vary了其它请求头的响应不缓存，所以key里不需要别的请求头
+ * 查找不加锁，业务线程之间只在淘汰时竞争；最近访问时间记录在每条缓存上，淘汰时按它排序，是近似的LRU
+ */
+public class HttpResponseCache {
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long defaultTtlNanos;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    //同一时间只有一个线程做淘汰，避免多个线程一起淘汰掉过多的缓存
+    private final Object evictionLock = new Object();
+
+    /**
+     * @param maxBytes      缓存总共能占用的字节数
+     * @param maxEntryBytes 单条响应超过这个大小就不缓存
+     * @param defaultTtl    响应没有Cache-Control: max-age时的过期时间
+     */
+    public HttpResponseCache(long maxBytes, long maxEntryBytes, long defaultTtl, TimeUnit unit) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxBytes, maxEntryBytes);
+        this.defaultTtlNanos = unit.toNanos(defaultTtl);
+    }
+
+    public long defaultTtlNanos() {
+        return defaultTtlNanos;
+    }
+
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * 请求对应的缓存key，只有GET和HEAD请求可以使用缓存，其它请求返回null
+     */
+    public static String key(HttpRequest request) {
+        HttpMethod method = request.method();
+        if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method)) {
+            return null;
+        }
+        String host = request.headers().get(HttpHeaderNames.HOST);
+        //HEAD和GET共用同一条缓存
+        return HttpMethod.GET.name() + ' ' + (host == null ? "" : host) + request.uri();
+    }
+
+    /**
+     * 查找没有过期的缓存，返回的对象已经retain过，用完后调用方必须release
+     */
+    public CachedHttpResponse get(String key, long now) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.response.isExpired(now)) {
+            remove(key, entry);
+            return null;
+        }
+        try {
+            entry.response.retain();
+        } catch (IllegalReferenceCountException e) {
+            //刚被其它线程淘汰掉
+            return null;
+        }
+        entry.lastAccess = now;
+        return entry.response;
+    }
+
+    /**
+     * 放入缓存，缓存接管response的引用
+     */
+    public void put(String key, CachedHttpResponse response, long now) {
+        if (response.size() > maxEntryBytes) {
+            response.release();
+            return;
+        }
+        Entry entry = new Entry(response, now);
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            totalBytes.addAndGet(-old.response.size());
+            old.response.release();
+        }
+        if (totalBytes.addAndGet(response.size()) > maxBytes) {
+            evict();
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        //只有真正从map里删掉的线程才释放，保证只释放一次
+        if (entries.remove(key, entry)) {
+            totalBytes.addAndGet(-entry.response.size());
+            entry.response.release();
+        }
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            if (totalBytes.get() <= maxBytes) {
+                return;
+            }
+            List<Map.Entry<String, Entry>> snapshot = new ArrayList<Map.Entry<String, Entry>>(entries.entrySet());
+            Collections.sort(snapshot, (a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+            for (int i = 0; i < snapshot.size() && totalBytes.get() > maxBytes; i++) {
+                remove(snapshot.get(i).getKey(), snapshot.get(i).getValue());
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final CachedHttpResponse response;
+        //最近一次命中的时间，只用于淘汰时排序，不要求精确
+        private volatile long lastAccess;
+
+        private Entry(CachedHttpResponse response, long lastAccess) {
+            this.response = response;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
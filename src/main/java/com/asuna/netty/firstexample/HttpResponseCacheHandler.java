@@ -0,0 +1,249 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.ArrayDeque;
+import java.util.zip.CRC32;
+
+/**
+ * 响应缓存处理器，放在业务处理器前面
+ * 入站：GET/HEAD请求命中缓存时直接把缓存的编码结果写回去，If-None-Match匹配时返回304，请求不再往后传
+ * 出站：后面处理器返回的可缓存FullHttpResponse编码一次放进缓存，以后的命中都是retainedSlice，不再编码
+ * 缓存时按压缩策略同时保存gzip/deflate版本，命中时按请求的Accept-Encoding选择，不再重复压缩
+ */
+public class HttpResponseCacheHandler extends ChannelDuplexHandler {
+    //不能缓存的请求在pending队列里的占位符，按引用比较
+    private static final String UNCACHEABLE = new String("");
+
+    private final HttpResponseCache cache;
+    private final HttpContentCompression compression;
+    private final KeepAlivePolicy keepAlivePolicy;
+
+    //已经交给后面处理器、还没有收到响应的请求的缓存key和协商好的压缩格式，流水线里的响应按请求的顺序返回
+    private final ArrayDeque<String> pending = new ArrayDeque<String>();
+    private final ArrayDeque<ZlibWrapper> pendingEncodings = new ArrayDeque<ZlibWrapper>();
+    //当前请求已经从缓存返回，后续的HttpContent直接丢弃
+    private boolean swallowing;
+    //写了响应还没有flush
+    private boolean needsFlush;
+    //出站方向正在写一个分段的响应
+    private boolean inMessage;
+
+    public HttpResponseCacheHandler(HttpResponseCache cache, HttpContentCompression compression) {
+        this(cache, compression, new KeepAlivePolicy(0));
+    }
+
+    public HttpResponseCacheHandler(HttpResponseCache cache, HttpContentCompression compression,
+                                    KeepAlivePolicy keepAlivePolicy) {
+        this.cache = cache;
+        this.compression = compression;
+        this.keepAlivePolicy = keepAlivePolicy;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            boolean get = HttpMethod.GET.equals(request.method());
+            boolean head = HttpMethod.HEAD.equals(request.method());
+            String key = HttpResponseCache.key(request);
+            ZlibWrapper encoding = HttpContentCompression.negotiate(
+                    request.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
+            //前面还有请求没响应时不能直接返回，否则会打乱流水线的响应顺序；连接要关闭时交给后面的处理器丢弃
+            if (key != null && pending.isEmpty() && !keepAlivePolicy.isClosing()) {
+                CachedHttpResponse cached = cache.get(key, System.nanoTime());
+                if (cached != null) {
+                    try {
+                        serve(ctx, request, cached, encoding, head);
+                    } finally {
+                        cached.release();
+                        ReferenceCountUtil.release(msg);
+                    }
+                    needsFlush = true;
+                    swallowing = !(msg instanceof LastHttpContent);
+                    return;
+                }
+            }
+            pending.add(get ? key : UNCACHEABLE);
+            pendingEncodings.add(encoding);
+        } else if (swallowing && msg instanceof HttpContent) {
+            ReferenceCountUtil.release(msg);
+            swallowing = !(msg instanceof LastHttpContent);
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        if (needsFlush) {
+            needsFlush = false;
+            ctx.flush();
+        }
+        ctx.fireChannelReadComplete();
+    }
+
+    /**
+     * 连接断开或者出错后，排队的请求不会再有响应了，清掉队列，避免之后的响应对不上号
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        reset();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        reset();
+        ctx.fireExceptionCaught(cause);
+    }
+
+    private void reset() {
+        pending.clear();
+        pendingEncodings.clear();
+        swallowing = false;
+        inMessage = false;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse || (!inMessage && msg instanceof ByteBuf)) {
+            String key = pending.poll();
+            ZlibWrapper encoding = pendingEncodings.poll();
+            if (key != null && key != UNCACHEABLE && msg instanceof FullHttpResponse) {
+                long ttl = ttlNanos((FullHttpResponse) msg);
+                if (ttl > 0) {
+                    store(ctx, key, (FullHttpResponse) msg, encoding, ttl, promise);
+                    return;
+                }
+            }
+        }
+        if (msg instanceof HttpResponse) {
+            inMessage = true;
+        }
+        //流式响应的HttpChunkedInput最后会由ChunkedWriteHandler写出LastHttpContent
+        if (msg instanceof LastHttpContent || msg instanceof HttpChunkedInput) {
+            inMessage = false;
+        }
+        ctx.write(msg, promise);
+    }
+
+    private void serve(ChannelHandlerContext ctx, HttpRequest request, CachedHttpResponse cached,
+                       ZlibWrapper encoding, boolean head) {
+        boolean keepAlive = keepAlivePolicy.keepAlive(request);
+        String ifNoneMatch = request.headers().get(HttpHeaderNames.IF_NONE_MATCH);
+        ChannelFuture future;
+        String etag = cached.etag(encoding);
+        if (ifNoneMatch != null && ("*".equals(ifNoneMatch) || ifNoneMatch.contains(etag))) {
+            FullHttpResponse response = new DefaultFullHttpResponse(request.protocolVersion(),
+                    HttpResponseStatus.NOT_MODIFIED);
+            response.headers().set(HttpHeaderNames.ETAG, etag);
+            response.headers().set(HttpHeaderNames.CONNECTION,
+                    keepAlive ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE);
+            future = ctx.write(response);
+        } else {
+            future = writeCached(ctx, cached, request.protocolVersion(), encoding, keepAlive, head,
+                    ctx.newPromise());
+        }
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void store(ChannelHandlerContext ctx, String key, FullHttpResponse response, ZlibWrapper encoding,
+                       long ttl, ChannelPromise promise) {
+        CachedHttpResponse cached;
+        boolean keepAlive = HttpUtil.isKeepAlive(response);
+        long now = System.nanoTime();
+        try {
+            if (!response.headers().contains(HttpHeaderNames.ETAG)) {
+                response.headers().set(HttpHeaderNames.ETAG, etag(response.content()));
+            }
+            cached = CachedHttpResponse.encode(response, ctx.alloc(), compression, now + ttl);
+        } finally {
+            response.release();
+        }
+        //后面的处理器已经按请求的协议版本回复
+        writeCached(ctx, cached, response.protocolVersion(), encoding, keepAlive, false, promise);
+        //缓存接管cached本身的引用计数
+        cache.put(key, cached, now);
+    }
+
+    private static ChannelFuture writeCached(ChannelHandlerContext ctx, CachedHttpResponse cached,
+                                             HttpVersion version, ZlibWrapper encoding, boolean keepAlive,
+                                             boolean head, ChannelPromise promise) {
+        /**
+         * 几段拼成一个CompositeByteBuf写出，不拷贝数据；
+         * 前面的处理器和编码器把两个响应之间的ByteBuf当成一个完整的响应，分开写会被当成多个响应
+         */
+        CompositeByteBuf response = ctx.alloc().compositeDirectBuffer(4);
+        response.addComponent(true, CachedHttpResponse.retainedVersion(version));
+        response.addComponent(true, cached.retainedHeaders(encoding));
+        response.addComponent(true, CachedHttpResponse.retainedTrailer(keepAlive));
+        if (!head) {
+            response.addComponent(true, cached.retainedBody(encoding));
+        }
+        return ctx.write(response, promise);
+    }
+
+    /**
+     * 只缓存200响应，Cache-Control里有max-age时以它为准，no-store/no-cache/private不缓存
+     * Vary了Accept-Encoding以外的请求头时不缓存，缓存的key里没有这些请求头
+     * 返回0表示不缓存
+     */
+    private long ttlNanos(FullHttpResponse response) {
+        if (!HttpResponseStatus.OK.equals(response.status())
+                || response.content().readableBytes() > cache.maxEntryBytes()
+                || !varyOnlyOnAcceptEncoding(response.headers())) {
+            return 0;
+        }
+        String cacheControl = response.headers().get(HttpHeaderNames.CACHE_CONTROL);
+        if (cacheControl == null) {
+            return cache.defaultTtlNanos();
+        }
+        if (cacheControl.contains("no-store") || cacheControl.contains("no-cache")
+                || cacheControl.contains("private")) {
+            return 0;
+        }
+        int index = cacheControl.indexOf("max-age=");
+        if (index < 0) {
+            return cache.defaultTtlNanos();
+        }
+        long seconds = 0;
+        for (int i = index + "max-age=".length(); i < cacheControl.length(); i++) {
+            char c = cacheControl.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            seconds = seconds * 10 + (c - '0');
+        }
+        return seconds * 1000000000L;
+    }
+
+    private static boolean varyOnlyOnAcceptEncoding(HttpHeaders headers) {
+        for (String vary : headers.getAll(HttpHeaderNames.VARY)) {
+            for (String name : vary.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty() && !HttpHeaderNames.ACCEPT_ENCODING.contentEqualsIgnoreCase(name)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String etag(ByteBuf content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.nioBuffer());
+        return "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(content.readableBytes()) + "\"";
+    }
+}
@@ -0,0 +1,11 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.handler.codec.http.HttpRequest;
+
+/**
+ * 一条路由对应的业务处理
+ * 返回StaticHttpResponse、StreamingHttpResponse或者FullHttpResponse，由TestHttpServerHandler负责按连接情况写出
+ */
+public interface HttpRouteHandler {
+    Object handle(HttpRequest request, RouteParams params) throws Exception;
+}
@@ -0,0 +1,163 @@
+package com.asuna.netty.firstexample;
+
+/**
+ * 基于前缀树的uri路由
+ * 注册的路由按字符编译成一棵树，支持三种写法：
+ * 1. 静态路径：/favicon.ico
+ * 2. 路径参数：/users/:id，匹配一整段（到下一个/为止）
+ * 3. 通配符：/static/*，只能放在最后，匹配剩下的所有字符
+ * 匹配时直接在请求的uri上逐个字符走树，遇到?或#结束，不构造URI也不截取子串；
+ * 优先级是静态路径 > 路径参数 > 通配符，匹配失败时回退
+ * 路由全部注册完后就不再修改，可以在所有连接之间共享
+ */
+public final class HttpRouter {
+    private final Node root = new Node();
+    private HttpRouteHandler notFound;
+
+    public HttpRouter add(String pattern, HttpRouteHandler handler) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("pattern must start with '/': " + pattern);
+        }
+        Node node = root;
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            boolean segmentStart = i > 0 && pattern.charAt(i - 1) == '/';
+            if (segmentStart && c == ':') {
+                int end = pattern.indexOf('/', i);
+                end = end < 0 ? pattern.length() : end;
+                String name = pattern.substring(i + 1, end);
+                if (node.param == null) {
+                    node.param = new Node();
+                    node.paramName = name;
+                } else if (!node.paramName.equals(name)) {
+                    throw new IllegalArgumentException("conflicting parameter name '" + name + "' in " + pattern);
+                }
+                node = node.param;
+                i = end;
+            } else if (segmentStart && c == '*') {
+                if (i != pattern.length() - 1) {
+                    throw new IllegalArgumentException("wildcard must be the last character: " + pattern);
+                }
+                node.wildcard = handler;
+                return this;
+            } else {
+                node = node.childOrCreate(c);
+                i++;
+            }
+        }
+        node.handler = handler;
+        return this;
+    }
+
+    /**
+     * 没有路由匹配时使用的处理器
+     */
+    public HttpRouter notFound(HttpRouteHandler handler) {
+        this.notFound = handler;
+        return this;
+    }
+
+    /**
+     * 查找uri对应的处理器，路径参数写进params；没有匹配时返回notFound
+     */
+    public HttpRouteHandler route(String uri, RouteParams params) {
+        params.reset(uri);
+        int end = 0;
+        while (end < uri.length()) {
+            char c = uri.charAt(end);
+            if (c == '?' || c == '#') {
+                break;
+            }
+            end++;
+        }
+        HttpRouteHandler handler = match(root, uri, 0, end, params);
+        return handler != null ? handler : notFound;
+    }
+
+    private static HttpRouteHandler match(Node node, String uri, int index, int end, RouteParams params) {
+        if (index == end) {
+            if (node.handler != null) {
+                return node.handler;
+            }
+            if (node.wildcard != null) {
+                params.add("*", index, index);
+            }
+            return node.wildcard;
+        }
+        char c = uri.charAt(index);
+        Node child = node.child(c);
+        if (child != null) {
+            HttpRouteHandler handler = match(child, uri, index + 1, end, params);
+            if (handler != null) {
+                return handler;
+            }
+        }
+        if (node.param != null && c != '/') {
+            int segmentEnd = index;
+            while (segmentEnd < end && uri.charAt(segmentEnd) != '/') {
+                segmentEnd++;
+            }
+            int mark = params.size();
+            params.add(node.paramName, index, segmentEnd);
+            HttpRouteHandler handler = match(node.param, uri, segmentEnd, end, params);
+            if (handler != null) {
+                return handler;
+            }
+            params.truncate(mark);
+        }
+        if (node.wildcard != null) {
+            params.add("*", index, end);
+        }
+        return node.wildcard;
+    }
+
+    private static final class Node {
+        //子节点按字符有序排列，二分查找
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private Node param;
+        private String paramName;
+        private HttpRouteHandler handler;
+        private HttpRouteHandler wildcard;
+
+        private Node child(char c) {
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (labels[mid] < c) {
+                    low = mid + 1;
+                } else if (labels[mid] > c) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        private Node childOrCreate(char c) {
+            Node child = child(c);
+            if (child != null) {
+                return child;
+            }
+            int position = 0;
+            while (position < labels.length && labels[position] < c) {
+                position++;
+            }
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(labels, position, newLabels, position + 1, labels.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+            child = new Node();
+            newLabels[position] = c;
+            newChildren[position] = child;
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URLConnection;
+import java.util.Date;
+
+/**
+ * 静态文件处理器，负责uriPrefix开头的GET/HEAD请求，其它请求交给后面的处理器
+ * 没有TLS时用DefaultFileRegion发送文件（底层是FileChannel.transferTo，即sendfile），文件内容不经过堆内存；
+ * 有SslHandler时数据必须加密，只能用ChunkedNioFile分块读出，需要管道里有ChunkedWriteHandler
+ * 支持单个Range请求（206/416）和If-Modified-Since（304）
+ * 长连接的请求计数和关闭状态用同一个连接上共用的KeepAlivePolicy
+ */
+public class HttpStaticFileHandler extends ChannelInboundHandlerAdapter {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final String uriPrefix;
+    private final File root;
+    private final KeepAlivePolicy keepAlivePolicy;
+
+    //当前请求由本处理器负责，后续的HttpContent直接丢弃
+    private boolean handling;
+    //写了响应还没有flush
+    private boolean needsFlush;
+
+    public HttpStaticFileHandler(String uriPrefix, File root) {
+        this(uriPrefix, root, new KeepAlivePolicy(0));
+    }
+
+    public HttpStaticFileHandler(String uriPrefix, File root, KeepAlivePolicy keepAlivePolicy) {
+        this.uriPrefix = uriPrefix;
+        this.root = root;
+        this.keepAlivePolicy = keepAlivePolicy;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            HttpMethod method = request.method();
+            handling = request.uri().startsWith(uriPrefix)
+                    && (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method));
+            if (handling) {
+                try {
+                    //已经发出了Connection: close的响应，之后的请求直接丢弃
+                    if (!keepAlivePolicy.isClosing()) {
+                        serve(ctx, request);
+                    }
+                } finally {
+                    ReferenceCountUtil.release(msg);
+                }
+                needsFlush = true;
+                handling = !(msg instanceof LastHttpContent);
+                return;
+            }
+        } else if (handling && msg instanceof HttpContent) {
+            ReferenceCountUtil.release(msg);
+            handling = !(msg instanceof LastHttpContent);
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        if (needsFlush) {
+            needsFlush = false;
+            ctx.flush();
+        }
+        ctx.fireChannelReadComplete();
+    }
+
+    private void serve(ChannelHandlerContext ctx, HttpRequest request) throws IOException {
+        boolean keepAlive = keepAlivePolicy.keepAlive(request);
+        //按请求的协议版本回复，HTTP/1.0的客户端收到的也是HTTP/1.0的响应
+        HttpVersion version = request.protocolVersion();
+        File file = resolve(request.uri());
+        if (file == null || file.isHidden() || !file.isFile()) {
+            sendStatus(ctx, version, HttpResponseStatus.NOT_FOUND, keepAlive);
+            return;
+        }
+
+        //If-Modified-Since只精确到秒
+        long lastModified = file.lastModified() / 1000 * 1000;
+        String ifModifiedSince = request.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+            if (since != null && since.getTime() >= lastModified) {
+                sendStatus(ctx, version, HttpResponseStatus.NOT_MODIFIED, keepAlive);
+                return;
+            }
+        }
+
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(file, "r");
+        } catch (FileNotFoundException e) {
+            //isFile()之后文件被删掉或者没有读权限，也要回一个响应，流水线里后面的请求才能继续
+            sendStatus(ctx, version, HttpResponseStatus.NOT_FOUND, keepAlive);
+            return;
+        }
+        long start = 0;
+        long length;
+        HttpResponse response;
+        //raf交给DefaultFileRegion/ChunkedNioFile之前出错要自己关掉
+        try {
+            long fileLength = raf.length();
+            long end = fileLength - 1;
+            HttpResponseStatus status = HttpResponseStatus.OK;
+
+            String range = request.headers().get(HttpHeaderNames.RANGE);
+            if (range != null) {
+                long[] bounds = parseRange(range, fileLength);
+                if (bounds == null) {
+                    raf.close();
+                    HttpResponse notSatisfiable = newResponse(version,
+                            HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE, 0, keepAlive);
+                    notSatisfiable.headers().set(HttpHeaderNames.CONTENT_RANGE, "bytes */" + fileLength);
+                    write(ctx, notSatisfiable, LastHttpContent.EMPTY_LAST_CONTENT, keepAlive);
+                    return;
+                }
+                if (bounds.length == 2) {
+                    start = bounds[0];
+                    end = bounds[1];
+                    status = HttpResponseStatus.PARTIAL_CONTENT;
+                }
+            }
+
+            length = end - start + 1;
+            response = newResponse(version, status, length, keepAlive);
+            HttpHeaders headers = response.headers();
+            String contentType = URLConnection.guessContentTypeFromName(file.getName());
+            headers.set(HttpHeaderNames.CONTENT_TYPE,
+                    contentType != null ? contentType : HttpHeaderValues.APPLICATION_OCTET_STREAM);
+            headers.set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(lastModified)));
+            headers.set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+            if (status == HttpResponseStatus.PARTIAL_CONTENT) {
+                headers.set(HttpHeaderNames.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileLength);
+            }
+
+            if (HttpMethod.HEAD.equals(request.method())) {
+                raf.close();
+                write(ctx, response, LastHttpContent.EMPTY_LAST_CONTENT, keepAlive);
+                return;
+            }
+        } catch (Exception e) {
+            raf.close();
+            throw e;
+        }
+
+        ctx.write(response);
+        if (ctx.pipeline().get(SslHandler.class) == null) {
+            //零拷贝：FileRegion最终由FileChannel.transferTo写到socket
+            ctx.write(new DefaultFileRegion(raf.getChannel(), start, length));
+            write(ctx, null, LastHttpContent.EMPTY_LAST_CONTENT, keepAlive);
+        } else {
+            //HttpChunkedInput在最后会自己写出LastHttpContent
+            write(ctx, null, new HttpChunkedInput(new ChunkedNioFile(raf.getChannel(), start, length, CHUNK_SIZE)),
+                    keepAlive);
+        }
+    }
+
+    /**
+     * 把uri映射成root下的文件，uri里有..等越界路径时返回null
+     */
+    private File resolve(String uri) {
+        String path = new QueryStringDecoder(uri).path().substring(uriPrefix.length());
+        if (path.isEmpty() || path.contains("..") || path.contains("\\") || path.indexOf('\0') >= 0) {
+            return null;
+        }
+        return new File(root, path.replace('/', File.separatorChar));
+    }
+
+    /**
+     * 只支持单个区间：bytes=start-end，bytes=start-，bytes=-suffix
+     * 返回null表示区间无法满足（416），返回空数组表示忽略Range发送整个文件
+     */
+    static long[] parseRange(String range, long fileLength) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        int dash = range.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = range.substring("bytes=".length(), dash).trim();
+            String last = range.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, fileLength - suffix);
+                end = fileLength - 1;
+            } else {
+                start = Long.parseLong(first);
+                if (last.isEmpty()) {
+                    end = fileLength - 1;
+                } else {
+                    long lastPos = Long.parseLong(last);
+                    //last-byte-pos比first-byte-pos小是语法错误，按RFC 7233忽略Range，不是416
+                    if (lastPos < start) {
+                        return new long[0];
+                    }
+                    end = Math.min(lastPos, fileLength - 1);
+                }
+            }
+            if (start >= fileLength) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static HttpResponse newResponse(HttpVersion version, HttpResponseStatus status, long contentLength,
+                                            boolean keepAlive) {
+        HttpResponse response = new DefaultHttpResponse(version, status);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, contentLength);
+        response.headers().set(HttpHeaderNames.CONNECTION,
+                keepAlive ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE);
+        return response;
+    }
+
+    private static void sendStatus(ChannelHandlerContext ctx, HttpVersion version, HttpResponseStatus status,
+                                   boolean keepAlive) {
+        HttpResponse response = newResponse(version, status, 0, keepAlive);
+        if (status == HttpResponseStatus.NOT_MODIFIED) {
+            //304没有响应体，Content-Length会被当成文件的长度
+            response.headers().remove(HttpHeaderNames.CONTENT_LENGTH);
+        }
+        response.headers().set(HttpHeaderNames.DATE, DateFormatter.format(new Date()));
+        write(ctx, response, LastHttpContent.EMPTY_LAST_CONTENT, keepAlive);
+    }
+
+    private static void write(ChannelHandlerContext ctx, HttpResponse response, Object last, boolean keepAlive) {
+        if (response != null) {
+            ctx.write(response);
+        }
+        ChannelFuture future = ctx.write(last);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpUtil;
+
+/**
+ * 一个连接的长连接策略，这个连接上所有会写出响应的处理器共用一个实例
+ * 静态文件、缓存命中和业务处理器各自回答一部分请求，但请求数和关闭状态只能有一份，
+ * 否则每个处理器各数各的，maxRequestsPerConnection就失效了
+ * 这些处理器在同一个线程上按请求顺序执行，不需要同步
+ */
+public final class KeepAlivePolicy {
+    //每个连接最多处理的请求数，小于等于0表示不限制
+    private final int maxRequests;
+    //当前连接已经处理的请求数
+    private int requestCount;
+    //已经决定发出Connection: close的响应，之后流水线里的请求都丢弃
+    private boolean closing;
+
+    public KeepAlivePolicy(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    /**
+     * 要回答一个请求时调用，返回这个响应是否保持连接，返回false以后连接进入关闭状态
+     */
+    public boolean keepAlive(HttpRequest request) {
+        boolean keepAlive = HttpUtil.isKeepAlive(request) && (maxRequests <= 0 || ++requestCount < maxRequests);
+        if (!keepAlive) {
+            closing = true;
+        }
+        return keepAlive;
+    }
+
+    /**
+     * 响应本身要求关闭连接（比如HTTP/1.0上没有长度的响应体），之后的请求也都丢弃
+     */
+    public void markClosing() {
+        closing = true;
+    }
+
+    public boolean isClosing() {
+        return closing;
+    }
+}
@@ -0,0 +1,38 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.util.List;
+
+/**
+ * 能直接放行预编码响应的HttpResponseEncoder
+ * 两个响应之间出现的ByteBuf一定是StaticHttpResponse这种已经编码好的完整响应，不再交给编码器处理，
+ * 这样预编码的响应和普通的HttpResponse走的是同一条出站路径，流水线里的响应顺序不会乱
+ */
+public class PassThroughHttpResponseEncoder extends HttpResponseEncoder {
+    //是否正在编码一个响应（已经写了响应头，还没有写LastHttpContent）
+    private boolean inMessage;
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        if (!inMessage && msg instanceof ByteBuf) {
+            return false;
+        }
+        return super.acceptOutboundMessage(msg);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+        if (msg instanceof HttpMessage) {
+            inMessage = true;
+        }
+        super.encode(ctx, msg, out);
+        if (msg instanceof LastHttpContent) {
+            inMessage = false;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+
+/**
+ * 演示用的报表导出：按需生成rows行CSV，每次只生成chunkSize字节左右的一块
+ * 真正的报表可以在readChunk里从数据库游标读下一批数据
+ */
+public class ReportChunkedInput implements ChunkedInput<ByteBuf> {
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+    //一行的最大长度，保证一行不会被拆到两块里
+    private static final int MAX_ROW_LENGTH = 64;
+
+    private final long rows;
+    private final int chunkSize;
+    //下一行的行号，0表示表头
+    private long next;
+    private long progress;
+
+    public ReportChunkedInput(long rows) {
+        this(rows, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ReportChunkedInput(long rows, int chunkSize) {
+        this.rows = rows;
+        this.chunkSize = Math.max(chunkSize, MAX_ROW_LENGTH);
+    }
+
+    @Override
+    public boolean isEndOfInput() throws Exception {
+        return next > rows;
+    }
+
+    @Override
+    public void close() throws Exception {
+        next = rows + 1;
+    }
+
+    @Deprecated
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        if (isEndOfInput()) {
+            return null;
+        }
+        ByteBuf chunk = allocator.buffer(chunkSize);
+        boolean release = true;
+        try {
+            if (next == 0) {
+                ByteBufUtil.writeAscii(chunk, "id,name,amount\n");
+                next++;
+            }
+            while (next <= rows && chunk.writableBytes() >= MAX_ROW_LENGTH) {
+                ByteBufUtil.writeAscii(chunk, next + ",item-" + next + "," + (next * 37 % 10000) + "\n");
+                next++;
+            }
+            progress += chunk.readableBytes();
+            release = false;
+            return chunk;
+        } finally {
+            if (release) {
+                chunk.release();
+            }
+        }
+    }
+
+    /**
+     * 总长度事先不知道
+     */
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public long progress() {
+        return progress;
+    }
+}
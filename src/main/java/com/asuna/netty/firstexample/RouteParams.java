@@ -0,0 +1,53 @@
+package com.asuna.netty.firstexample;
+
+/**
+ * 路由匹配出的路径参数
+ * 匹配时只记录参数在uri里的起止位置，调用get时才创建String，每个连接复用同一个对象
+ */
+public final class RouteParams {
+    private String uri;
+    private String[] names = new String[4];
+    //每个参数占两个位置：起始下标和结束下标
+    private int[] bounds = new int[8];
+    private int size;
+
+    void reset(String uri) {
+        this.uri = uri;
+        this.size = 0;
+    }
+
+    void add(String name, int start, int end) {
+        if (size == names.length) {
+            String[] newNames = new String[size * 2];
+            System.arraycopy(names, 0, newNames, 0, size);
+            names = newNames;
+            int[] newBounds = new int[size * 4];
+            System.arraycopy(bounds, 0, newBounds, 0, size * 2);
+            bounds = newBounds;
+        }
+        names[size] = name;
+        bounds[size * 2] = start;
+        bounds[size * 2 + 1] = end;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void truncate(int size) {
+        this.size = size;
+    }
+
+    /**
+     * 参数的值，没有这个参数时返回null
+     */
+    public String get(String name) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                return uri.substring(bounds[i * 2], bounds[i * 2 + 1]);
+            }
+        }
+        return null;
+    }
+}
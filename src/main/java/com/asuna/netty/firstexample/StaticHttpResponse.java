@@ -0,0 +1,164 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+
+/**
+ * 预先编码好的静态HTTP响应
+ * 状态行、响应头和响应体只在创建时编码一次，保存在共享的只读直接内存中，
+ * 每次请求只需要retainedDuplicate()一份视图写出去，不再构造DefaultFullHttpResponse和重新编码响应头
+ * HTTP/1.1和HTTP/1.0的状态行不同，长连接和短连接的Connection响应头不同，所以每种组合各编码一份；
+ * 响应体达到压缩阈值时，gzip和deflate的压缩结果也在创建时一起编码好，按Accept-Encoding选择发送
+ */
+public final class StaticHttpResponse {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final HttpVersion[] VERSIONS = {HttpVersion.HTTP_1_1, HttpVersion.HTTP_1_0};
+    private static final int ENCODINGS = ZlibWrapper.values().length;
+
+    //下标见index()：协议版本、长短连接和ZlibWrapper的ordinal，没有对应的压缩版本时为null
+    private final Encoded[] variants = new Encoded[VERSIONS.length * 2 * ENCODINGS];
+    private final boolean compressed;
+
+    //HTTP/2等不能直接发送HTTP/1.1字节的场景，用这几个字段构造FullHttpResponse
+    private final HttpResponseStatus status;
+    private final CharSequence contentType;
+    private final ByteBuf content;
+
+    public StaticHttpResponse(HttpResponseStatus status, CharSequence contentType, String body) {
+        this(status, contentType, body, HttpContentCompression.DEFAULT);
+    }
+
+    public StaticHttpResponse(HttpResponseStatus status, CharSequence contentType, String body,
+                              HttpContentCompression compression) {
+        byte[] content = body.getBytes(CharsetUtil.UTF_8);
+        this.status = status;
+        this.contentType = contentType;
+        this.content = Unpooled.unreleasableBuffer(
+                Unpooled.directBuffer(content.length).writeBytes(content).asReadOnly());
+        boolean compressible = compression.shouldCompress(contentType, content.length);
+        if (compressible) {
+            ByteBuf identity = Unpooled.wrappedBuffer(content);
+            for (ZlibWrapper wrapper : new ZlibWrapper[]{ZlibWrapper.GZIP, ZlibWrapper.ZLIB}) {
+                ByteBuf compressedContent = compression.compress(UnpooledByteBufAllocator.DEFAULT, identity,
+                        wrapper, compression.level(contentType));
+                //压缩后反而更大就不要这个版本了
+                if (compressedContent.readableBytes() < content.length) {
+                    add(status, contentType, ByteBufUtil.getBytes(compressedContent), wrapper);
+                }
+                compressedContent.release();
+            }
+        }
+        this.compressed = variants[index(HttpVersion.HTTP_1_1, true, ZlibWrapper.GZIP)] != null
+                || variants[index(HttpVersion.HTTP_1_1, true, ZlibWrapper.ZLIB)] != null;
+        add(status, contentType, content, compressed ? ZlibWrapper.NONE : null);
+    }
+
+    /**
+     * 是否有压缩版本，没有的话就不用去解析Accept-Encoding了
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * 完整响应的视图，写出后由Netty负责release
+     * version是请求的协议版本，encoding是协商出的压缩格式，没有这个压缩版本时发送不压缩的版本
+     */
+    public ByteBuf retainedFull(HttpVersion version, boolean keepAlive, ZlibWrapper encoding) {
+        return select(version, keepAlive, encoding).buffer.retainedDuplicate();
+    }
+
+    /**
+     * 只有状态行和响应头的视图，用于HEAD请求
+     */
+    public ByteBuf retainedHeadOnly(HttpVersion version, boolean keepAlive, ZlibWrapper encoding) {
+        Encoded encoded = select(version, keepAlive, encoding);
+        return encoded.buffer.retainedSlice(encoded.buffer.readerIndex(), encoded.headerLength);
+    }
+
+    /**
+     * 不压缩版本的FullHttpResponse，响应体是共享内存的视图，响应头每次新建
+     */
+    public FullHttpResponse newFullHttpResponse() {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                content.retainedDuplicate());
+        if (contentType != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        }
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        return response;
+    }
+
+    private Encoded select(HttpVersion version, boolean keepAlive, ZlibWrapper encoding) {
+        Encoded encoded = variants[index(version, keepAlive, encoding)];
+        return encoded != null ? encoded : variants[index(version, keepAlive, ZlibWrapper.NONE)];
+    }
+
+    /**
+     * HTTP/1.0以外的版本都按HTTP/1.1发送
+     */
+    private static int index(HttpVersion version, boolean keepAlive, ZlibWrapper encoding) {
+        int versionIndex = HttpVersion.HTTP_1_0.equals(version) ? 1 : 0;
+        return (versionIndex * 2 + (keepAlive ? 1 : 0)) * ENCODINGS + encoding.ordinal();
+    }
+
+    /**
+     * encoding为null表示这个响应没有压缩版本，不需要Vary头
+     */
+    private void add(HttpResponseStatus status, CharSequence contentType, byte[] content, ZlibWrapper encoding) {
+        ZlibWrapper wrapper = encoding == null ? ZlibWrapper.NONE : encoding;
+        for (HttpVersion version : VERSIONS) {
+            variants[index(version, true, wrapper)] = encode(version, status, contentType, content, encoding,
+                    HttpHeaderValues.KEEP_ALIVE);
+            variants[index(version, false, wrapper)] = encode(version, status, contentType, content, encoding,
+                    HttpHeaderValues.CLOSE);
+        }
+    }
+
+    private static Encoded encode(HttpVersion version, HttpResponseStatus status, CharSequence contentType,
+                                  byte[] content, ZlibWrapper encoding, CharSequence connection) {
+        StringBuilder header = new StringBuilder(128);
+        header.append(version.text()).append(' ').append(status.codeAsText())
+                .append(' ').append(status.reasonPhrase()).append("\r\n");
+        if (contentType != null) {
+            header.append(HttpHeaderNames.CONTENT_TYPE).append(": ").append(contentType).append("\r\n");
+        }
+        if (encoding != null && encoding != ZlibWrapper.NONE) {
+            header.append(HttpHeaderNames.CONTENT_ENCODING).append(": ")
+                    .append(HttpContentCompression.contentEncoding(encoding)).append("\r\n");
+        }
+        if (encoding != null) {
+            header.append(HttpHeaderNames.VARY).append(": ").append(HttpHeaderNames.ACCEPT_ENCODING).append("\r\n");
+        }
+        header.append(HttpHeaderNames.CONTENT_LENGTH).append(": ").append(content.length).append("\r\n");
+        header.append(HttpHeaderNames.CONNECTION).append(": ").append(connection).append("\r\n");
+        byte[] head = header.toString().getBytes(CharsetUtil.US_ASCII);
+
+        ByteBuf buffer = Unpooled.directBuffer(head.length + CRLF.length + content.length);
+        buffer.writeBytes(head).writeBytes(CRLF).writeBytes(content);
+        //只读并且不可释放，所有连接共享同一块内存
+        return new Encoded(Unpooled.unreleasableBuffer(buffer.asReadOnly()), head.length + CRLF.length);
+    }
+
+    private static final class Encoded {
+        //完整的响应：状态行 + 响应头 + 响应体
+        private final ByteBuf buffer;
+        //状态行加响应头的长度，HEAD请求只需要发送这一部分
+        private final int headerLength;
+
+        private Encoded(ByteBuf buffer, int headerLength) {
+            this.buffer = buffer;
+            this.headerLength = headerLength;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.stream.ChunkedInput;
+
+/**
+ * 流式响应：响应头先发出去，响应体由ChunkedInput一块一块地生成，用chunked编码发送
+ * 需要管道里有ChunkedWriteHandler，它只在Channel.isWritable()时才读下一块，
+ * 出站缓冲超过高水位后停下来，等channelWritabilityChanged再继续，
+ * 所以不管响应体有多大，每个连接占用的内存都不会超过写缓冲的高水位加一块数据
+ */
+public final class StreamingHttpResponse {
+    private final HttpResponse head;
+    private final ChunkedInput<ByteBuf> body;
+
+    public StreamingHttpResponse(HttpResponseStatus status, CharSequence contentType, ChunkedInput<ByteBuf> body) {
+        this.head = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        if (contentType != null) {
+            head.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        }
+        this.body = body;
+    }
+
+    public HttpResponse head() {
+        return head;
+    }
+
+    /**
+     * HTTP/1.0没有chunked编码，响应体只能不带长度直接发送、发完关闭连接
+     */
+    public static boolean isChunkedSupported(HttpVersion version) {
+        return !HttpVersion.HTTP_1_0.equals(version);
+    }
+
+    /**
+     * 按请求的协议版本写出响应头和响应体，返回最后一次写的future
+     * HEAD请求只写响应头，body直接关闭；不支持chunked的版本上keepAlive必须为false，由调用方在写完后关闭连接
+     */
+    public ChannelFuture write(ChannelHandlerContext ctx, HttpVersion version, boolean keepAlive, boolean headOnly)
+            throws Exception {
+        head.setProtocolVersion(version);
+        head.headers().set(HttpHeaderNames.CONNECTION, keepAlive ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE);
+        if (headOnly) {
+            body.close();
+            /**
+             * 带着Transfer-Encoding: chunked的响应，编码器会给LastHttpContent写出0\r\n\r\n结束块，
+             * HEAD响应后面不能有任何字节；响应体的长度要生成完才知道，所以两个头都不发，只写一个空的完整响应
+             */
+            FullHttpResponse response = new DefaultFullHttpResponse(head.protocolVersion(), head.status(),
+                    Unpooled.EMPTY_BUFFER);
+            response.headers().set(head.headers());
+            return ctx.write(response);
+        }
+        //不用chunked时编码器把每块数据原样写出，LastHttpContent不产生任何字节
+        HttpUtil.setTransferEncodingChunked(head, isChunkedSupported(version));
+        ctx.write(head, ctx.voidPromise());
+        //HttpChunkedInput把每块数据包装成HttpContent，最后写出LastHttpContent
+        return ctx.write(new HttpChunkedInput(body));
+    }
+}
@@ -1,48 +1,174 @@
 package com.asuna.netty.firstexample;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.compression.ZlibWrapper;
 import io.netty.handler.codec.http.*;
-import io.netty.util.CharsetUtil;
-
-import java.net.URI;
 
 /**
  * 自己的HTTP处理器，负责处理逻辑
  */
 public class TestHttpServerHandler extends SimpleChannelInboundHandler<HttpObject> {
 
+    //静态响应只编码一次，所有连接共享
+    private static final StaticHttpResponse HELLO_WORLD =
+            new StaticHttpResponse(HttpResponseStatus.OK, HttpHeaderValues.TEXT_PLAIN, "Hello world");
+    private static final StaticHttpResponse NOT_FOUND =
+            new StaticHttpResponse(HttpResponseStatus.NOT_FOUND, null, "");
+
+    //流式报表最多生成的行数
+    private static final long MAX_REPORT_ROWS = 100000000L;
+    //不超过这么多行的报表一次生成完整的响应，交给HttpResponseCacheHandler缓存，一万行大约250K
+    private static final long CACHEABLE_REPORT_ROWS = 10000;
+    //报表内容只由行数决定，可以缓存一分钟
+    private static final String REPORT_CACHE_CONTROL = "max-age=60";
+
+    //默认路由：/favicon.ico返回404，/report/:rows导出报表（小报表完整返回、可以缓存，大报表流式发送），其它路径都返回Hello world
+    static final HttpRouter DEFAULT_ROUTER = new HttpRouter()
+            .add("/favicon.ico", (request, params) -> NOT_FOUND)
+            .add("/report/:rows", TestHttpServerHandler::report)
+            .add("/*", (request, params) -> HELLO_WORLD)
+            .notFound((request, params) -> NOT_FOUND);
+
+    private final HttpRouter router;
+    //路径参数，每个连接复用
+    private final RouteParams params = new RouteParams();
+
+    //和同一个连接上的静态文件、缓存处理器共用的请求计数和关闭状态
+    private final KeepAlivePolicy keepAlivePolicy;
+
+    public TestHttpServerHandler() {
+        this(0);
+    }
+
+    public TestHttpServerHandler(int maxRequestsPerConnection) {
+        this(DEFAULT_ROUTER, maxRequestsPerConnection);
+    }
+
+    public TestHttpServerHandler(HttpRouter router, int maxRequestsPerConnection) {
+        this(router, new KeepAlivePolicy(maxRequestsPerConnection));
+    }
+
+    public TestHttpServerHandler(HttpRouter router, KeepAlivePolicy keepAlivePolicy) {
+        this.router = router;
+        this.keepAlivePolicy = keepAlivePolicy;
+    }
+
     //处理请求，构造响应在这个方法中完成
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws Exception {
-        System.out.println(msg.getClass());
-        if (msg instanceof HttpRequest){
+        if (msg instanceof HttpRequest && !keepAlivePolicy.isClosing()){
 
             HttpRequest httpRequest = (HttpRequest) msg;
-            System.out.println("请求方法名:" + httpRequest.method().name());
-            URI uri = new URI(httpRequest.uri());
-            if ("/favicon.ico".equals(uri.getPath())){
-                System.out.println("favicon.ico");
-                return;
+            //路由直接在原始的uri上匹配，不再构造java.net.URI
+            Object response = router.route(httpRequest.uri(), params).handle(httpRequest, params);
+
+            //HTTP/1.0的客户端按HTTP/1.0回复，没有Connection: keep-alive时由keepAlivePolicy决定关闭
+            HttpVersion version = httpRequest.protocolVersion();
+            boolean keepAlive = keepAlivePolicy.keepAlive(httpRequest);
+            boolean head = HttpMethod.HEAD.equals(httpRequest.method());
+
+            /**
+             * 这里只write不flush，流水线里的多个请求按顺序写入缓冲区，
+             * 等这一批数据读完后在channelReadComplete里统一flush，减少系统调用
+             */
+            ChannelFuture future;
+            if (response instanceof StaticHttpResponse) {
+                future = ctx.write(encode((StaticHttpResponse) response, httpRequest, keepAlive, head));
+            } else if (response instanceof StreamingHttpResponse) {
+                //HTTP/1.0没有chunked编码，流式的响应体只能靠关闭连接来结束
+                if (keepAlive && !head && !StreamingHttpResponse.isChunkedSupported(version)) {
+                    keepAlive = false;
+                    keepAlivePolicy.markClosing();
+                }
+                future = ((StreamingHttpResponse) response).write(ctx, version, keepAlive, head);
+            } else {
+                future = ctx.write(prepare((FullHttpResponse) response, version, keepAlive, head));
+            }
+            if (!keepAlive) {
+                future.addListener(ChannelFutureListener.CLOSE);
             }
-            //要返回给客户端的内容
-            ByteBuf content = Unpooled.copiedBuffer("Hello world", CharsetUtil.UTF_8);
-
-            //构建一个响应，灿哥参数分别为：
-            //1. HTTP协议
-            //2. HTTP状态
-            //3. 返回内容
-            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
-            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
-            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
-
-            //一定要write和flush一起使用，不然会把响应放进缓冲区，flush之后才会写回客户端
-            ctx.writeAndFlush(response);
         }
     }
 
+    private static Object report(HttpRequest request, RouteParams params) throws Exception {
+        long rows;
+        try {
+            rows = Long.parseLong(params.get("rows"));
+        } catch (NumberFormatException e) {
+            return NOT_FOUND;
+        }
+        if (rows < 0 || rows > MAX_REPORT_ROWS) {
+            return NOT_FOUND;
+        }
+        if (rows <= CACHEABLE_REPORT_ROWS) {
+            return fullReport(rows);
+        }
+        return new StreamingHttpResponse(HttpResponseStatus.OK, "text/csv", new ReportChunkedInput(rows));
+    }
+
+    /**
+     * 小报表的块直接拼成CompositeByteBuf，不拷贝
+     */
+    private static FullHttpResponse fullReport(long rows) throws Exception {
+        ReportChunkedInput input = new ReportChunkedInput(rows);
+        CompositeByteBuf content = ByteBufAllocator.DEFAULT.compositeBuffer(Integer.MAX_VALUE);
+        try {
+            ByteBuf chunk;
+            while ((chunk = input.readChunk(ByteBufAllocator.DEFAULT)) != null) {
+                content.addComponent(true, chunk);
+            }
+        } catch (Exception e) {
+            content.release();
+            throw e;
+        }
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/csv");
+        response.headers().set(HttpHeaderNames.CACHE_CONTROL, REPORT_CACHE_CONTROL);
+        return response;
+    }
+
+    private static ByteBuf encode(StaticHttpResponse response, HttpRequest request, boolean keepAlive, boolean head) {
+        //只有存在压缩版本的响应才需要协商Accept-Encoding
+        ZlibWrapper encoding = response.isCompressed()
+                ? HttpContentCompression.negotiate(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING))
+                : ZlibWrapper.NONE;
+        HttpVersion version = request.protocolVersion();
+        return head ? response.retainedHeadOnly(version, keepAlive, encoding)
+                : response.retainedFull(version, keepAlive, encoding);
+    }
+
+    /**
+     * 按请求的协议版本回复，补上Content-Length和Connection头，HEAD请求去掉响应体
+     */
+    static FullHttpResponse prepare(FullHttpResponse response, HttpVersion version, boolean keepAlive,
+                                    boolean head) {
+        response.setProtocolVersion(version);
+        HttpHeaders headers = response.headers();
+        if (!headers.contains(HttpHeaderNames.CONTENT_LENGTH)) {
+            HttpUtil.setContentLength(response, response.content().readableBytes());
+        }
+        headers.set(HttpHeaderNames.CONNECTION, keepAlive ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE);
+        if (head) {
+            FullHttpResponse empty = response.replace(Unpooled.EMPTY_BUFFER);
+            response.release();
+            return empty;
+        }
+        return response;
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        ctx.flush();
+        super.channelReadComplete(ctx);
+    }
+
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         System.out.println("channel active");
@@ -1,28 +1,40 @@
 package com.asuna.netty.firstexample;
 
+import com.asuna.netty.util.BusinessExecutors;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.EventExecutorGroup;
 
 public class TestServer {
     public static void main(String[] args) {
+        //启动参数为h2c时使用明文HTTP/2模式，同时支持prior knowledge和HTTP/1.1升级
+        boolean h2c = args.length > 0 && "h2c".equals(args[0]);
+
         /**
          * 新建两个线程组，bossGroup用于接收外面的新连接
          *               workerGroup用于处理新来的连接的业务，并返回数据
          */
         EventLoopGroup bossGroup = new NioEventLoopGroup();
         EventLoopGroup workerGroup = new NioEventLoopGroup();
+        //业务处理器使用的线程池，同一个连接的请求总在同一个线程上按顺序处理
+        EventExecutorGroup businessGroup = BusinessExecutors.newOrdered("http-business", 16, 10000);
 
         /***
          * 启动服务，开启通道NioServerSocketChannel,通过反射的方式创建
          *         childHandler:子处理器，请求到来的处理器
          *         TestServerInitializer: 我们自己提供的初始化器
+         *         Http2ServerInitializer: h2c模式的初始化器
          */
         ServerBootstrap serverBootstrap = new ServerBootstrap();
         serverBootstrap.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class).
-                childHandler(new TestServerInitializer());
+                childHandler(h2c ? new Http2ServerInitializer() : new TestServerInitializer(businessGroup)).
+                //出站缓冲超过64K时Channel变为不可写，流式响应暂停生成数据，低于32K时恢复
+                childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(32 * 1024, 64 * 1024));
 
         try {
             /**
@@ -36,6 +48,7 @@ public class TestServer {
             //优雅关闭
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
+            businessGroup.shutdownGracefully();
         }
     }
 }
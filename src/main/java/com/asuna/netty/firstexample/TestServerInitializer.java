@@ -1,23 +1,91 @@
 package com.asuna.netty.firstexample;
 
+import com.asuna.netty.util.BusinessBackpressureHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 public class TestServerInitializer extends ChannelInitializer<SocketChannel> {
+    //每个长连接最多处理的请求数，超过后响应Connection: close并关闭连接
+    private static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 10000;
+    //静态文件的uri前缀和根目录
+    private static final String STATIC_URI_PREFIX = "/static/";
+    private static final String WEBSOCKET_PATH = "/ws";
+    private static final File STATIC_ROOT = new File(System.getProperty("http.static.root", "static"));
+
+    private final int maxRequestsPerConnection;
+    //HTTP处理器所在的业务线程池，为null时直接在I/O线程上执行
+    private final EventExecutorGroup businessGroup;
+    //所有连接共享的响应缓存：总共64M，单条最大1M，默认缓存60秒
+    private final HttpResponseCache responseCache = new HttpResponseCache(64 * 1024 * 1024, 1024 * 1024,
+            60, TimeUnit.SECONDS);
+    //响应压缩策略：1K以下不压缩，文本类按类型配置压缩级别
+    private final HttpContentCompression compression = HttpContentCompression.DEFAULT;
+    //所有WebSocket连接共用的广播组
+    private final WebSocketBroadcaster broadcaster = new WebSocketBroadcaster();
+
+    public TestServerInitializer() {
+        this(DEFAULT_MAX_REQUESTS_PER_CONNECTION);
+    }
+
+    public TestServerInitializer(int maxRequestsPerConnection) {
+        this(maxRequestsPerConnection, null);
+    }
+
+    public TestServerInitializer(EventExecutorGroup businessGroup) {
+        this(DEFAULT_MAX_REQUESTS_PER_CONNECTION, businessGroup);
+    }
+
+    public TestServerInitializer(int maxRequestsPerConnection, EventExecutorGroup businessGroup) {
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+        this.businessGroup = businessGroup;
+    }
+
     //连接管道
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         //里面有很多个拦截器
         ChannelPipeline pipeline = ch.pipeline();
+        //静态文件、缓存命中和业务处理器共用一份请求计数，maxRequestsPerConnection对所有响应都生效
+        KeepAlivePolicy keepAlivePolicy = new KeepAlivePolicy(maxRequestsPerConnection);
 
         /**
          * 处理HTTP的重要组件
-         * HttpServerCodec,TestHttpServerHandler不能为单例模式
+         * 编解码器拆成HttpRequestDecoder和PassThroughHttpResponseEncoder两个，
+         * 这样预编码好的静态响应可以直接穿过编码器写出
+         * ChunkedWriteHandler：有TLS时分块发送文件
+         * BusinessBackpressureHandler：业务线程的任务队列积压时暂停读
+         * WebSocketUpgradeHandler：/ws上的WebSocket升级请求，升级后换成WebSocket的处理器
+         * HttpStaticFileHandler：/static/下的静态文件，其余请求交给TestHttpServerHandler
+         * HttpContentCompressionHandler：按Accept-Encoding压缩没有缓存的动态响应
+         * HttpResponseCacheHandler：命中缓存的请求直接返回，不再经过TestHttpServerHandler，压缩版本也一起缓存
+         * 这些处理器都有状态，不能为单例模式
+         * 编解码器和ChunkedWriteHandler留在I/O线程上；从WebSocketUpgradeHandler开始，所有会写出响应的处理器
+         * 都放到businessGroup，同一个连接固定在其中一个线程上。静态文件、缓存命中和业务处理器的响应
+         * 都从这个线程按请求顺序写出，再切回I/O线程，流水线里的响应顺序不会乱
          */
-        pipeline.addLast("HttpServerCodec", new HttpServerCodec());
-        pipeline.addLast("TestHttpServerHandler", new TestHttpServerHandler());
+        pipeline.addLast("HttpRequestDecoder", new HttpRequestDecoder());
+        pipeline.addLast("HttpResponseEncoder", new PassThroughHttpResponseEncoder());
+        pipeline.addLast("ChunkedWriteHandler", new ChunkedWriteHandler());
+        if (businessGroup != null) {
+            pipeline.addLast("BusinessBackpressureHandler", new BusinessBackpressureHandler("WebSocketUpgradeHandler"));
+        }
+        pipeline.addLast(businessGroup, "WebSocketUpgradeHandler",
+                new WebSocketUpgradeHandler(WEBSOCKET_PATH, broadcaster));
+        pipeline.addLast(businessGroup, "HttpStaticFileHandler",
+                new HttpStaticFileHandler(STATIC_URI_PREFIX, STATIC_ROOT, keepAlivePolicy));
+        pipeline.addLast(businessGroup, "HttpContentCompressionHandler",
+                new HttpContentCompressionHandler(compression));
+        pipeline.addLast(businessGroup, "HttpResponseCacheHandler",
+                new HttpResponseCacheHandler(responseCache, compression, keepAlivePolicy));
+        pipeline.addLast(businessGroup, "TestHttpServerHandler",
+                new TestHttpServerHandler(TestHttpServerHandler.DEFAULT_ROUTER, keepAlivePolicy));
 
     }
 }
@@ -0,0 +1,92 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelMatcher;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket广播
+ * 一条消息只编码一次成完整的WebSocket帧（服务端发出的帧不需要掩码，所有接收者的字节完全相同），
+ * 再通过ChannelGroup给每个连接写一份retainedDuplicate()，WebSocket编码器不会再处理这些ByteBuf
+ * 连接不可写（出站缓冲超过高水位）时跳过这次广播，避免慢客户端把内存撑满
+ */
+public class WebSocketBroadcaster {
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    //因为连接不可写而丢弃的消息数
+    private final LongAdder dropped = new LongAdder();
+
+    private final ChannelMatcher writable = channel -> {
+        if (channel.isWritable()) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    };
+
+    /**
+     * 加入广播组，连接关闭后ChannelGroup会自动把它移除
+     */
+    public void add(Channel channel) {
+        channels.add(channel);
+    }
+
+    /**
+     * 广播一帧，调用后frame的引用由广播器负责释放
+     */
+    public void broadcast(ByteBufAllocator alloc, WebSocketFrame frame) {
+        ByteBuf encoded;
+        try {
+            encoded = encode(alloc, frame);
+        } finally {
+            frame.release();
+        }
+        //ChannelGroup会给每个连接写encoded.retainedDuplicate()，最后释放encoded本身
+        channels.writeAndFlush(encoded, writable, true);
+    }
+
+    public int size() {
+        return channels.size();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 按RFC 6455编码成不带掩码的帧：FIN/RSV/opcode，载荷长度（7位、16位或64位），载荷
+     */
+    static ByteBuf encode(ByteBufAllocator alloc, WebSocketFrame frame) {
+        int opcode;
+        if (frame instanceof TextWebSocketFrame) {
+            opcode = 0x1;
+        } else if (frame instanceof BinaryWebSocketFrame) {
+            opcode = 0x2;
+        } else {
+            throw new IllegalArgumentException("unsupported frame type: " + frame.getClass().getSimpleName());
+        }
+        ByteBuf content = frame.content();
+        int length = content.readableBytes();
+        ByteBuf encoded = alloc.directBuffer(10 + length);
+        encoded.writeByte((frame.isFinalFragment() ? 0x80 : 0) | (frame.rsv() << 4) | opcode);
+        if (length <= 125) {
+            encoded.writeByte(length);
+        } else if (length <= 0xFFFF) {
+            encoded.writeByte(126);
+            encoded.writeShort(length);
+        } else {
+            encoded.writeByte(127);
+            encoded.writeLong(length);
+        }
+        encoded.writeBytes(content, content.readerIndex(), length);
+        return encoded;
+    }
+}
@@ -0,0 +1,56 @@
+package com.asuna.netty.firstexample;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+
+/**
+ * 识别websocketPath上的WebSocket升级请求
+ * 普通HTTP请求不需要聚合，所以HttpObjectAggregator和WebSocketServerProtocolHandler只在升级时才加进管道；
+ * 同时移除后面的HTTP处理器，升级后的连接上只剩WebSocket相关的处理器
+ */
+public class WebSocketUpgradeHandler extends ChannelInboundHandlerAdapter {
+    private static final int MAX_HANDSHAKE_LENGTH = 64 * 1024;
+
+    private final String websocketPath;
+    private final WebSocketBroadcaster broadcaster;
+
+    public WebSocketUpgradeHandler(String websocketPath, WebSocketBroadcaster broadcaster) {
+        this.websocketPath = websocketPath;
+        this.broadcaster = broadcaster;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest && isUpgrade((HttpRequest) msg)) {
+            ChannelPipeline pipeline = ctx.pipeline();
+            while (pipeline.last() != this) {
+                pipeline.removeLast();
+            }
+            pipeline.addLast(new HttpObjectAggregator(MAX_HANDSHAKE_LENGTH));
+            pipeline.addLast(new WebSocketServerProtocolHandler(websocketPath));
+            pipeline.addLast(new WebSocketFrameHandler(broadcaster));
+            pipeline.remove(this);
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private boolean isUpgrade(HttpRequest request) {
+        String uri = request.uri();
+        if (!uri.startsWith(websocketPath)) {
+            return false;
+        }
+        if (uri.length() > websocketPath.length()) {
+            char next = uri.charAt(websocketPath.length());
+            if (next != '?' && next != '#') {
+                return false;
+            }
+        }
+        return request.headers().containsValue(HttpHeaderNames.UPGRADE, HttpHeaderValues.WEBSOCKET, true);
+    }
+}
@@ -0,0 +1,114 @@
+package com.asuna.netty.handler;
+
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.Recycler;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * 一批原始long，代替逐个装箱的Long在管道里传递
+ * 对象和里面的long[]通过Recycler复用，引用计数归零时回收；
+ * SimpleChannelInboundHandler和MessageToByteEncoder处理完会自动release，自己持有时要retain
+ */
+public final class LongBatch extends AbstractReferenceCounted {
+    //回收时保留的数组最大长度，超过的数组不放回池里，避免每个线程的池子长期占着大数组
+    private static final int MAX_POOLED_CAPACITY = 8192;
+    private static final long[] EMPTY = new long[0];
+
+    private static final Recycler<LongBatch> RECYCLER = new Recycler<LongBatch>() {
+        @Override
+        protected LongBatch newObject(Handle<LongBatch> handle) {
+            return new LongBatch(handle);
+        }
+    };
+
+    private final Recycler.Handle<LongBatch> handle;
+    private long[] values = EMPTY;
+    private int size;
+
+    private LongBatch(Recycler.Handle<LongBatch> handle) {
+        this.handle = handle;
+    }
+
+    public static LongBatch newInstance(int capacity) {
+        LongBatch batch = RECYCLER.get();
+        batch.setRefCnt(1);
+        if (batch.values.length < capacity) {
+            batch.values = new long[capacity];
+        }
+        return batch;
+    }
+
+    public static LongBatch of(long... values) {
+        LongBatch batch = newInstance(values.length);
+        System.arraycopy(values, 0, batch.values, 0, values.length);
+        batch.size = values.length;
+        return batch;
+    }
+
+    public LongBatch add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(16, size << 1));
+        }
+        values[size++] = value;
+        return this;
+    }
+
+    /**
+     * 解码器直接往array()里填好值之后设置有效个数
+     */
+    void setSize(int size) {
+        if (size > values.length) {
+            throw new IndexOutOfBoundsException("size: " + size + ", capacity: " + values.length);
+        }
+        this.size = size;
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 内部数组，只有前size()个有效，release之后不能再用
+     */
+    public long[] array() {
+        return values;
+    }
+
+    public LongBuffer asLongBuffer() {
+        return LongBuffer.wrap(values, 0, size);
+    }
+
+    @Override
+    public LongBatch retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public LongBatch touch(Object hint) {
+        return this;
+    }
+
+    @Override
+    protected void deallocate() {
+        size = 0;
+        if (values.length > MAX_POOLED_CAPACITY) {
+            values = EMPTY;
+        }
+        handle.recycle(this);
+    }
+
+    @Override
+    public String toString() {
+        return "LongBatch(size: " + size + ")";
+    }
+}
@@ -0,0 +1,110 @@
+package com.asuna.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.util.List;
+
+/**
+ * 一次把累积缓冲区里所有完整的long解码成一个LongBatch，不再每个long装箱、每个long走一遍管道
+ * 一批最多maxBatchSize个，剩下的由ByteToMessageDecoder接着调用decode；不完整的值留在累积缓冲区等下一次读
+ * DELTA_VARINT模式记着上一个值，每个连接一个实例
+ */
+public class LongBatchDecoder extends ByteToMessageDecoder {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 8192;
+    //varint编码的long最多10个字节
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    private final LongEncoding encoding;
+    private final int maxBatchSize;
+    private long previous;
+
+    public LongBatchDecoder() {
+        this(LongEncoding.FIXED);
+    }
+
+    public LongBatchDecoder(LongEncoding encoding) {
+        this(encoding, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public LongBatchDecoder(LongEncoding encoding, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize: " + maxBatchSize + " (expected: > 0)");
+        }
+        this.encoding = encoding;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        LongBatch batch = encoding == LongEncoding.FIXED ? decodeFixed(in) : decodeDeltaVarint(in);
+        if (batch != null) {
+            out.add(batch);
+        }
+    }
+
+    private LongBatch decodeFixed(ByteBuf in) {
+        int count = Math.min(in.readableBytes() >>> 3, maxBatchSize);
+        if (count == 0) {
+            return null;
+        }
+        LongBatch batch = LongBatch.newInstance(count);
+        long[] values = batch.array();
+        int index = in.readerIndex();
+        for (int i = 0; i < count; i++, index += 8) {
+            values[i] = in.getLong(index);
+        }
+        in.readerIndex(index);
+        batch.setSize(count);
+        return batch;
+    }
+
+    private LongBatch decodeDeltaVarint(ByteBuf in) {
+        int index = in.readerIndex();
+        int end = in.writerIndex();
+        //每个值至少1个字节，可读字节数就是值个数的上限
+        int count = Math.min(end - index, maxBatchSize);
+        if (count == 0) {
+            return null;
+        }
+        LongBatch batch = LongBatch.newInstance(count);
+        long[] values = batch.array();
+        long previous = this.previous;
+        int decoded = 0;
+        while (decoded < count) {
+            long raw = 0;
+            int shift = 0;
+            int i = index;
+            boolean complete = false;
+            while (i < end) {
+                byte b = in.getByte(i++);
+                raw |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    complete = true;
+                    break;
+                }
+                shift += 7;
+                if (shift >= MAX_VARINT_LENGTH * 7) {
+                    batch.release();
+                    throw new CorruptedFrameException("varint longer than " + MAX_VARINT_LENGTH + " bytes");
+                }
+            }
+            if (!complete) {
+                break;
+            }
+            previous += (raw >>> 1) ^ -(raw & 1);
+            values[decoded++] = previous;
+            index = i;
+        }
+        if (decoded == 0) {
+            batch.release();
+            return null;
+        }
+        this.previous = previous;
+        in.readerIndex(index);
+        batch.setSize(decoded);
+        return batch;
+    }
+}
@@ -0,0 +1,60 @@
+package com.asuna.netty.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+/**
+ * 把一个LongBatch一次编码进一块按最大长度预先分配好的缓冲区，中间不再扩容和检查边界
+ * 写完后LongBatch由MessageToByteEncoder负责release
+ * DELTA_VARINT模式记着上一个值，每个连接一个实例
+ */
+public class LongBatchEncoder extends MessageToByteEncoder<LongBatch> {
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    private final LongEncoding encoding;
+    private long previous;
+
+    public LongBatchEncoder() {
+        this(LongEncoding.FIXED);
+    }
+
+    public LongBatchEncoder(LongEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, LongBatch msg, boolean preferDirect) throws Exception {
+        int perValue = encoding == LongEncoding.FIXED ? 8 : MAX_VARINT_LENGTH;
+        int capacity = msg.size() * perValue;
+        return preferDirect ? ctx.alloc().ioBuffer(capacity) : ctx.alloc().heapBuffer(capacity);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, LongBatch msg, ByteBuf out) throws Exception {
+        long[] values = msg.array();
+        int size = msg.size();
+        int index = out.writerIndex();
+        if (encoding == LongEncoding.FIXED) {
+            out.ensureWritable(size << 3);
+            for (int i = 0; i < size; i++, index += 8) {
+                out.setLong(index, values[i]);
+            }
+        } else {
+            out.ensureWritable(size * MAX_VARINT_LENGTH);
+            long previous = this.previous;
+            for (int i = 0; i < size; i++) {
+                long delta = values[i] - previous;
+                previous = values[i];
+                long raw = (delta << 1) ^ (delta >> 63);
+                while ((raw & ~0x7FL) != 0) {
+                    out.setByte(index++, (int) (raw & 0x7F) | 0x80);
+                    raw >>>= 7;
+                }
+                out.setByte(index++, (int) raw);
+            }
+            this.previous = previous;
+        }
+        out.writerIndex(index);
+    }
+}
@@ -0,0 +1,16 @@
+package com.asuna.netty.handler;
+
+/**
+ * LongBatchEncoder/LongBatchDecoder的线上格式，两端必须一致
+ */
+public enum LongEncoding {
+    /**
+     * 每个long固定8字节大端，和MyLongToByteEncoder/MyByteToLongDecoder兼容
+     */
+    FIXED,
+    /**
+     * 每个值和上一个值的差做zig-zag后按varint写出，第一个值和0比
+     * 单调递增的计数器每个值通常只要1到2个字节；差值的状态跟着连接走，编解码器不能共享
+     */
+    DELTA_VARINT
+}
@@ -2,13 +2,19 @@ package com.asuna.netty.handler;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.handler.codec.ByteToMessageDecoder;
 
 import java.util.List;
 
-public class MyByteToLongDecoder2 extends ReplayingDecoder<Void> {
+/**
+ * 原来继承ReplayingDecoder，数据不够时靠内部抛出的Signal中断decode，下次读到数据再从头重跑
+ * 现在先检查可读字节数，够8个字节才读，一次把能读的long都读完；不够时直接返回，不抛异常也不重跑
+ */
+public class MyByteToLongDecoder2 extends ByteToMessageDecoder {
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        out.add(in.readLong());
+        while (in.readableBytes() >= 8) {
+            out.add(in.readLong());
+        }
     }
 }
@@ -3,17 +3,15 @@ package com.asuna.netty.handler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 
-import java.time.LocalDateTime;
-
 /**
  * 客户端自己的业务处理器，服务器给他发消息时会调用的方法
  */
-public class MyClientHandler extends SimpleChannelInboundHandler<Long> {
+public class MyClientHandler extends SimpleChannelInboundHandler<LongBatch> {
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, Long msg) throws Exception {
+    protected void channelRead0(ChannelHandlerContext ctx, LongBatch msg) throws Exception {
         System.out.println(ctx.channel().remoteAddress());
         System.out.println("client output" + msg);
-        ctx.writeAndFlush(12155456464l);
+        ctx.writeAndFlush(LongBatch.of(12155456464l));
     }
 
     @Override
@@ -24,6 +22,6 @@ public class MyClientHandler extends SimpleChannelInboundHandler<Long> {
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
-        ctx.writeAndFlush("active");
+        ctx.writeAndFlush(LongBatch.of(1L));
     }
 }
@@ -3,26 +3,17 @@ package com.asuna.netty.handler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
-import io.netty.util.CharsetUtil;
 
 public class MyClientInitializer extends ChannelInitializer<SocketChannel> {
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
         /**
-         * LengthFieldBasedFrameDecoder: 字符长度编解码器
-         * LengthFieldPrepender:
-         * StringDecoder，StringEncoder：字符串编解码器
-         *
+         * 和服务端一样用批量的long编解码器，两端的LongEncoding必须一致
          */
-        pipeline.addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4,0 ,4));
-        pipeline.addLast(new LengthFieldPrepender(4));
-        pipeline.addLast(new StringDecoder(CharsetUtil.UTF_8));
-        pipeline.addLast(new StringEncoder(CharsetUtil.UTF_8));
+        pipeline.addLast(new LongBatchDecoder(LongEncoding.FIXED));
+        pipeline.addLast(new LongBatchEncoder(LongEncoding.FIXED));
         pipeline.addLast(new MyClientHandler());
     }
 }
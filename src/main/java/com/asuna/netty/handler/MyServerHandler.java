@@ -3,14 +3,13 @@ package com.asuna.netty.handler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 
-import java.util.UUID;
-
-public class MyServerHandler extends SimpleChannelInboundHandler<Long> {
+public class MyServerHandler extends SimpleChannelInboundHandler<LongBatch> {
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, Long msg) throws Exception {
-        System.out.println(ctx.channel().remoteAddress() + ", " + msg);
-        ctx.channel().writeAndFlush("from server: " + UUID.randomUUID());
-        ctx.writeAndFlush(25632656l);
+    protected void channelRead0(ChannelHandlerContext ctx, LongBatch msg) throws Exception {
+        //一批只打印个数和最后一个值，读完后LongBatch由SimpleChannelInboundHandler回收
+        System.out.println(ctx.channel().remoteAddress() + ", " + msg.size() + " longs, last: " + msg.get(msg.size() - 1));
+        //管道里只有LongBatchEncoder，回复也必须是LongBatch
+        ctx.writeAndFlush(LongBatch.of(25632656l));
     }
 
     @Override
@@ -13,8 +13,13 @@ public class MyServerInitializer extends ChannelInitializer<SocketChannel> {
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
-        pipeline.addLast(new MyByteToLongDecoder());
-        pipeline.addLast(new MyLongToByteEncoder());
+        /**
+         * 批量的long编解码器：一次读到的所有long解成一个LongBatch，不再逐个装箱
+         * FIXED格式和MyByteToLongDecoder/MyLongToByteEncoder的线上格式相同；
+         * 单调递增的计数器序列可以两端都换成LongEncoding.DELTA_VARINT
+         */
+        pipeline.addLast(new LongBatchDecoder(LongEncoding.FIXED));
+        pipeline.addLast(new LongBatchEncoder(LongEncoding.FIXED));
         pipeline.addLast(new MyServerHandler());
     }
 }
@@ -0,0 +1,102 @@
+package com.asuna.netty.handler2;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.ByteProcessor;
+
+import java.util.List;
+
+/**
+ * 按单字节分隔符（默认'\n'）拆帧，帧是累积缓冲区的retainedSlice，不拷贝数据，下游用完要release
+ * 查找分隔符时一次读8个字节按字（SWAR）比较，剩下不到8个字节再用ByteProcessor逐个找；
+ * 没找到时记住已经扫过的位置，半个帧后面来了新数据不会从头再扫
+ * 超过maxFrameLength还没遇到分隔符时丢掉这一帧，直到下一个分隔符，并抛TooLongFrameException
+ */
+public class DelimiterFrameDecoder extends ByteToMessageDecoder {
+    public static final byte DEFAULT_DELIMITER = '\n';
+
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final long pattern;
+    private final ByteProcessor findDelimiter;
+    private final int maxFrameLength;
+    private final boolean stripDelimiter;
+    //上次已经扫过的字节数（从readerIndex算起）
+    private int scanned;
+    //正在丢弃一个过长的帧
+    private boolean discarding;
+    private long discardedBytes;
+
+    public DelimiterFrameDecoder(int maxFrameLength) {
+        this(maxFrameLength, DEFAULT_DELIMITER, true);
+    }
+
+    public DelimiterFrameDecoder(int maxFrameLength, byte delimiter, boolean stripDelimiter) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("maxFrameLength: " + maxFrameLength + " (expected: > 0)");
+        }
+        this.maxFrameLength = maxFrameLength;
+        this.pattern = (delimiter & 0xFFL) * LOW_BITS;
+        this.findDelimiter = new ByteProcessor.IndexOfProcessor(delimiter);
+        this.stripDelimiter = stripDelimiter;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        int readerIndex = in.readerIndex();
+        int index = indexOf(in, readerIndex + scanned, in.writerIndex());
+        if (index < 0) {
+            int readable = in.readableBytes();
+            if (discarding) {
+                discardedBytes += readable;
+                in.skipBytes(readable);
+                scanned = 0;
+            } else if (readable > maxFrameLength) {
+                //过长的帧不再攒着，先丢掉，等到分隔符出现再报错，后面的帧还能正常解析
+                discarding = true;
+                discardedBytes = readable;
+                in.skipBytes(readable);
+                scanned = 0;
+            } else {
+                scanned = readable;
+            }
+            return;
+        }
+        scanned = 0;
+        int frameLength = index - readerIndex;
+        if (discarding || frameLength > maxFrameLength) {
+            long tooLong = discardedBytes + frameLength;
+            discarding = false;
+            discardedBytes = 0;
+            in.readerIndex(index + 1);
+            throw new TooLongFrameException("frame length exceeds " + maxFrameLength + ": " + tooLong + " - discarded");
+        }
+        if (stripDelimiter) {
+            out.add(in.readRetainedSlice(frameLength));
+            in.skipBytes(1);
+        } else {
+            out.add(in.readRetainedSlice(frameLength + 1));
+        }
+    }
+
+    /**
+     * 在[from, to)里找分隔符，没有时返回-1
+     * 每次取8个字节，和8个分隔符拼成的pattern异或后，等于分隔符的字节变成0，
+     * 用(x - 0x01..01) & ~x & 0x80..80找有没有为0的字节；借位只会往高位传，误报只出现在真正的0字节之后，
+     * 所以按小端读取，最低位的那个就是最靠前的分隔符
+     */
+    private int indexOf(ByteBuf buf, int from, int to) {
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long word = buf.getLongLE(i) ^ pattern;
+            long found = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        return i < to ? buf.forEachByte(i, to - i, findDelimiter) : -1;
+    }
+}
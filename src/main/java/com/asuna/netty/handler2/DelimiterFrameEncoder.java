@@ -0,0 +1,31 @@
+package com.asuna.netty.handler2;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.util.List;
+
+/**
+ * 在每个ByteBuf后面加上分隔符：原来的ByteBuf和一个共享的分隔符缓冲区一起写出，由gathering write一次发送，不拷贝内容
+ * 内容里不能含有分隔符
+ */
+@ChannelHandler.Sharable
+public class DelimiterFrameEncoder extends MessageToMessageEncoder<ByteBuf> {
+    public static final DelimiterFrameEncoder DEFAULT = new DelimiterFrameEncoder(DelimiterFrameDecoder.DEFAULT_DELIMITER);
+
+    private final ByteBuf delimiter;
+
+    public DelimiterFrameEncoder(byte delimiter) {
+        this.delimiter = Unpooled.unreleasableBuffer(
+                Unpooled.directBuffer(1).writeByte(delimiter).asReadOnly());
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        out.add(msg.retain());
+        out.add(delimiter.duplicate());
+    }
+}
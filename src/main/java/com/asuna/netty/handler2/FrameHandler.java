@@ -0,0 +1,28 @@
+package com.asuna.netty.handler2;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * 直接处理DelimiterFrameDecoder切出来的帧，帧是接收缓冲区的视图，不拷贝成byte[]或String
+ * 在frameRead里用ctx.write写响应，一次读完之后在channelReadComplete里统一flush
+ */
+public abstract class FrameHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+    @Override
+    protected final void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+        frameRead(ctx, msg);
+    }
+
+    /**
+     * frame不含分隔符，方法返回后会被release；要留到以后用的话自己retain()或者retainedSlice()
+     */
+    protected abstract void frameRead(ChannelHandlerContext ctx, ByteBuf frame) throws Exception;
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        ctx.flush();
+        super.channelReadComplete(ctx);
+    }
+}
@@ -1,7 +1,8 @@
 package com.asuna.netty.handler2;
 
+import com.asuna.netty.util.ClientChannelPool;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
@@ -9,15 +10,22 @@ import io.netty.channel.socket.nio.NioSocketChannel;
 public class MyClient {
     public static void main(String[] args) {
         EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+        /**
+         * 连接从连接池里借：最少1个、最多8个连接，连接都借出去了时最多等5秒
+         * ChannelInitializer可以共享，所有连接共用一个
+         */
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(eventLoopGroup).channel(NioSocketChannel.class).remoteAddress("localhost", 8899);
+        ClientChannelPool pool = new ClientChannelPool(bootstrap, new MyClientInitializer(), 1, 8, 5000);
         try {
-            Bootstrap bootstrap = new Bootstrap();
-            bootstrap.group(eventLoopGroup).channel(NioSocketChannel.class)
-                    .handler(new MyClientInitializer());
-            ChannelFuture channelFuture = bootstrap.connect("localhost", 8899).sync();
-            channelFuture.channel().closeFuture().sync();
+            //等预热的连接建好并还回池里再借，否则会绕开预热的连接另建一个
+            pool.warmUpFuture().sync();
+            Channel channel = pool.acquire().sync().getNow();
+            channel.closeFuture().sync();
         } catch (InterruptedException e) {
             e.printStackTrace();
         } finally {
+            pool.close();
             eventLoopGroup.shutdownGracefully();
         }
     }
@@ -3,20 +3,20 @@ package com.asuna.netty.handler2;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.SimpleChannelInboundHandler;
-
-import java.nio.charset.Charset;
+import io.netty.util.CharsetUtil;
 
 /**
  * 客户端自己的业务处理器，服务器给他发消息时会调用的方法
  */
-public class MyClientHandler extends SimpleChannelInboundHandler<ByteBuf> {
+public class MyClientHandler extends FrameHandler {
+    //每次发送的内容都一样，编码一次后所有连接共享
+    private static final ByteBuf MESSAGE = Unpooled.unreleasableBuffer(
+            Unpooled.copiedBuffer("send from client:", CharsetUtil.UTF_8).asReadOnly());
+
     private int count;
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
-        byte[] buffer = new byte[msg.readableBytes()];
-        String message = new String(buffer, Charset.forName("utf-8"));
-        System.out.println("client recv:" + message);
+    protected void frameRead(ChannelHandlerContext ctx, ByteBuf frame) throws Exception {
+        System.out.println("client recv:" + frame.toString(CharsetUtil.UTF_8));
         System.out.println("client count" + ++count);
     }
 
@@ -28,10 +28,10 @@ public class MyClientHandler extends SimpleChannelInboundHandler<ByteBuf> {
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        //每条消息后面由DelimiterFrameEncoder加上'\n'，服务端能按条拆开；十条一起flush
         for (int i = 0; i < 10; i++) {
-            ByteBuf buffer = Unpooled.copiedBuffer("send from client:", Charset.forName("utf-8"));
-            ctx.writeAndFlush(buffer);
+            ctx.write(MESSAGE.duplicate());
         }
-        ctx.writeAndFlush("active");
+        ctx.flush();
     }
 }
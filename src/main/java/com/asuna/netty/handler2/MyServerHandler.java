@@ -1,25 +1,21 @@
 package com.asuna.netty.handler2;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.CharsetUtil;
 
-import java.nio.charset.Charset;
 import java.util.UUID;
 
-public class MyServerHandler extends SimpleChannelInboundHandler<ByteBuf> {
+public class MyServerHandler extends FrameHandler {
     private int count = 0;
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
-        byte[] buffer = new byte[msg.readableBytes()];
-        msg.readBytes(buffer);
-        String message = new String(buffer, Charset.forName("utf-8"));
-        System.out.println("server recv:" + message);
+    protected void frameRead(ChannelHandlerContext ctx, ByteBuf frame) throws Exception {
+        //直接从帧里解码打印，不先拷贝到byte[]
+        System.out.println("server recv:" + frame.toString(CharsetUtil.UTF_8));
         System.out.println("server count:" + (++count));
 
-        ByteBuf response = Unpooled.copiedBuffer(UUID.randomUUID().toString(), Charset.forName("utf-8"));
-        ctx.writeAndFlush(response);
+        ctx.write(ByteBufUtil.writeUtf8(ctx.alloc(), UUID.randomUUID().toString()));
     }
 
     @Override
@@ -5,10 +5,16 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
 
 public class MyServerInitializer extends ChannelInitializer<SocketChannel> {
+    //一行日志的最大长度
+    static final int MAX_FRAME_LENGTH = 64 * 1024;
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
 
+        //按'\n'拆帧，帧是接收缓冲区的切片；写出时在后面补上'\n'
+        pipeline.addLast(new DelimiterFrameDecoder(MAX_FRAME_LENGTH));
+        pipeline.addLast(DelimiterFrameEncoder.DEFAULT);
         pipeline.addLast(new MyServerHandler());
     }
 }
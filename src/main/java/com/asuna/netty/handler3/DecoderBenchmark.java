@@ -0,0 +1,98 @@
+package com.asuna.netty.handler3;
+
+import com.asuna.netty.handler.MyByteToLongDecoder2;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 对比ReplayingDecoder和状态机解码器在输入被切成很多小段时的开销
+ * 模拟慢速移动网络：每次只到segment个字节，用EmbeddedChannel直接驱动解码器，不经过网络
+ * 用法：java DecoderBenchmark [contentLength] [segment]，默认4096字节的帧、每段16字节
+ */
+public class DecoderBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int contentLength = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int segment = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+        ByteBuf persons = Unpooled.buffer();
+        for (int i = 0; i < 256; i++) {
+            persons.writeInt(contentLength).writeZero(contentLength);
+        }
+        ByteBuf longs = Unpooled.buffer();
+        for (int i = 0; i < 256 * 1024; i++) {
+            longs.writeLong(i);
+        }
+
+        System.out.println("person, " + contentLength + " bytes per frame, " + segment + " bytes per read:");
+        run("  ReplayingDecoder", ReplayingPersonDecoder::new, persons, segment);
+        run("  MyPersonDecoder ", MyPersonDecoder::new, persons, segment);
+        //long只有8个字节，按3个字节一段切，每个long都要跨段
+        System.out.println("long, 3 bytes per read:");
+        run("  ReplayingDecoder    ", ReplayingLongDecoder::new, longs, 3);
+        run("  MyByteToLongDecoder2", MyByteToLongDecoder2::new, longs, 3);
+
+        persons.release();
+        longs.release();
+    }
+
+    private static void run(String name, Supplier<ChannelHandler> decoder, ByteBuf input, int segment) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            decode(decoder.get(), input, segment);
+        }
+        long best = Long.MAX_VALUE;
+        int messages = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            messages = decode(decoder.get(), input, segment);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%s %8.2f ms, %d messages%n", name, best / 1e6, messages);
+    }
+
+    private static int decode(ChannelHandler decoder, ByteBuf input, int segment) {
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+        ByteBuf in = input.duplicate();
+        int messages = 0;
+        while (in.isReadable()) {
+            channel.writeInbound(in.readRetainedSlice(Math.min(segment, in.readableBytes())));
+            Object msg;
+            while ((msg = channel.readInbound()) != null) {
+                ReferenceCountUtil.release(msg);
+                messages++;
+            }
+        }
+        channel.finishAndReleaseAll();
+        return messages;
+    }
+
+    /**
+     * 原来的ReplayingDecoder实现，补上了out.add，内容照旧拷贝成byte[]
+     */
+    private static final class ReplayingPersonDecoder extends ReplayingDecoder<Void> {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+            int length = in.readInt();
+            byte[] content = new byte[length];
+            in.readBytes(content);
+            out.add(PersonProtocol.newInstance(Unpooled.wrappedBuffer(content)));
+        }
+    }
+
+    private static final class ReplayingLongDecoder extends ReplayingDecoder<Void> {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+            out.add(in.readLong());
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package com.asuna.netty.handler3;
 
+import com.asuna.netty.util.ClientChannelPool;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
@@ -12,23 +13,32 @@ import io.netty.channel.socket.nio.NioSocketChannel;
 public class MyClient {
     public static void main(String[] args) {
         EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+        /**
+         * 连接从连接池里借：最少1个、最多8个连接，连接都借出去了时最多等5秒
+         * ChannelInitializer可以共享，所有连接共用一个
+         */
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(eventLoopGroup).channel(NioSocketChannel.class).remoteAddress("localhost", 8899);
+        ClientChannelPool pool = new ClientChannelPool(bootstrap, new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) throws Exception {
+                ChannelPipeline pipeline = ch.pipeline();
+                pipeline.addLast(new MyPersonDecoder(MyPersonDecoder.DEFAULT_MAX_LENGTH,
+                        MyServerInitializer.DEFAULT_COMPRESSION, MyServerInitializer.DEFAULT_CHECKSUM));
+                pipeline.addLast(new MyPeronEncoder(MyServerInitializer.DEFAULT_COMPRESSION,
+                        MyServerInitializer.DEFAULT_CHECKSUM));
+                pipeline.addLast(new MyClientHandler());
+            }
+        }, 1, 8, 5000);
         try {
-            Bootstrap bootstrap = new Bootstrap();
-            bootstrap.group(eventLoopGroup).channel(NioSocketChannel.class)
-                    .handler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel ch) throws Exception {
-                            ChannelPipeline pipeline = ch.pipeline();
-                            pipeline.addLast(new MyPersonDecoder());
-                            pipeline.addLast(new MyPeronEncoder());
-                            pipeline.addLast(new MyClientHandler());
-                        }
-                    });
-            ChannelFuture channelFuture = bootstrap.connect("localhost", 8899).sync();
-            channelFuture.channel().closeFuture().sync();
+            //等预热的连接建好并还回池里再借，否则会绕开预热的连接另建一个
+            pool.warmUpFuture().sync();
+            Channel channel = pool.acquire().sync().getNow();
+            channel.closeFuture().sync();
         } catch (InterruptedException e) {
             e.printStackTrace();
         } finally {
+            pool.close();
             eventLoopGroup.shutdownGracefully();
         }
     }
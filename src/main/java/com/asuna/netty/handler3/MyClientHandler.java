@@ -1,19 +1,17 @@
 package com.asuna.netty.handler3;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-
-import java.nio.charset.Charset;
+import io.netty.util.CharsetUtil;
 
 public class MyClientHandler extends SimpleChannelInboundHandler<PersonProtocol> {
     private int count;
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, PersonProtocol msg) throws Exception {
-        int length = msg.getLength();
-        byte[] content = msg.getContent();
         System.out.println("client recv:");
-        System.out.println("length:" + length);
-        System.out.println("content:" + new String(content, Charset.forName("utf-8")));
+        System.out.println("length:" + msg.getLength());
+        System.out.println("content:" + msg.content().toString(CharsetUtil.UTF_8));
 
         System.out.println("count:" + (++count));
     }
@@ -26,14 +24,16 @@ public class MyClientHandler extends SimpleChannelInboundHandler<PersonProtocol>
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        //按PersonSchema直接把字段写进ByteBuf，不经过对象序列化
+        SchemaWriter writer = new SchemaWriter(PersonSchema.SCHEMA);
         for (int i = 0; i < 10; i++) {
-            String messageToBeSend = "send from client";
-            byte[] content = messageToBeSend.getBytes("utf-8");
-            int length = messageToBeSend.getBytes("utf-8").length;
-            PersonProtocol protocol = new PersonProtocol();
-            protocol.setContent(content);
-            protocol.setLength(length);
-            ctx.writeAndFlush(protocol);
+            ByteBuf content = writer.begin(ctx.alloc().buffer())
+                    .writeLong(PersonSchema.ID, i)
+                    .writeLong(PersonSchema.AGE, 20 + i)
+                    .writeString(PersonSchema.NAME, "send from client")
+                    .writeString(PersonSchema.CITY, i % 2 == 0 ? "上海" : "北京")
+                    .end();
+            ctx.writeAndFlush(PersonProtocol.newInstance(content));
         }
     }
 }
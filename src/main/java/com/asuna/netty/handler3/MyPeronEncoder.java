@@ -1,13 +1,149 @@
 package com.asuna.netty.handler3;
 
+import com.asuna.netty.util.Crc32c;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.codec.compression.Snappy;
+
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * 只分配4字节的长度头，和content一起放进CompositeByteBuf写出，写的时候由gathering write一次发送，不拷贝内容
+ * 编码完PersonProtocol由MessageToMessageEncoder负责release，content在这里多retain一次交给CompositeByteBuf
+ * 配置了压缩时，达到阈值的内容先压缩，压缩结果代替content写出，格式见PersonCompression
+ * 开启checksum时再加4字节的CRC32C，直接在要发送的内容上算，不拷贝，也单独作为一个组件写出
+ * 压缩器有状态，每个连接一个实例
+ */
+public class MyPeronEncoder extends MessageToMessageEncoder<PersonProtocol> {
+    private final PersonCompression compression;
+    private final boolean checksum;
+    private Snappy snappy;
+    private Deflater deflater;
+
+    public MyPeronEncoder() {
+        this(PersonCompression.NONE);
+    }
+
+    public MyPeronEncoder(PersonCompression compression) {
+        this(compression, false);
+    }
+
+    public MyPeronEncoder(PersonCompression compression, boolean checksum) {
+        this.compression = compression;
+        this.checksum = checksum;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, PersonProtocol msg, List<Object> out) throws Exception {
+        ByteBuf content = msg.content();
+        int length = content.readableBytes();
+        PersonCompression.Codec codec = PersonCompression.Codec.NONE;
+        ByteBuf body = null;
+        if (compression.shouldCompress(length)) {
+            body = compress(ctx, content);
+            if (body != null) {
+                codec = compression.codec();
+            }
+        }
+        if (body == null) {
+            body = content.retain();
+        }
+        int bodyLength = body.readableBytes();
+        //长度字段里是最终发送的长度（压缩后的内容加上校验码），按它检查，不能溢出到压缩方式的位里
+        long frameLength = checksum ? bodyLength + 4L : bodyLength;
+        if (frameLength > PersonCompression.LENGTH_MASK) {
+            body.release();
+            throw new EncoderException("person frame too large: " + frameLength);
+        }
+        ByteBuf header = ctx.alloc().ioBuffer(4)
+                .writeInt(codec.flag << PersonCompression.CODEC_SHIFT | (int) frameLength);
+        CompositeByteBuf frame = ctx.alloc().compositeBuffer(3);
+        frame.addComponents(true, header, body);
+        if (checksum) {
+            int crc = Crc32c.compute(body, body.readerIndex(), bodyLength);
+            frame.addComponent(true, ctx.alloc().ioBuffer(4).writeInt(crc));
+        }
+        out.add(frame);
+    }
+
+    /**
+     * 返回原始长度加压缩后的内容，压缩后不比原来小时返回null
+     */
+    private ByteBuf compress(ChannelHandlerContext ctx, ByteBuf content) {
+        int length = content.readableBytes();
+        if (compression.codec() == PersonCompression.Codec.SNAPPY) {
+            if (snappy == null) {
+                snappy = new Snappy();
+            }
+            //Snappy的哈希表和复制偏移都是2字节的，一次最多只能压缩Short.MAX_VALUE字节，大的内容分块压缩，
+            //每块前面是4字节的压缩后长度
+            ByteBuf compressed = ctx.alloc().ioBuffer(4 + length);
+            try {
+                compressed.writeInt(length);
+                int index = content.readerIndex();
+                for (int remaining = length; remaining > 0; ) {
+                    int blockLength = Math.min(remaining, PersonCompression.SNAPPY_BLOCK_LENGTH);
+                    int lengthIndex = compressed.writerIndex();
+                    compressed.writeInt(0);
+                    snappy.encode(content.slice(index, blockLength), compressed, blockLength);
+                    snappy.reset();
+                    compressed.setInt(lengthIndex, compressed.writerIndex() - lengthIndex - 4);
+                    index += blockLength;
+                    remaining -= blockLength;
+                }
+            } catch (RuntimeException e) {
+                compressed.release();
+                throw e;
+            }
+            if (compressed.readableBytes() >= length) {
+                compressed.release();
+                return null;
+            }
+            return compressed;
+        }
+
+        //Java 8的Deflater只能处理byte[]，压缩结果直接写进堆缓冲区的数组，最多写到原始长度，写不下说明不值得压缩
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+        deflater.reset();
+        if (compression.dictionary() != null) {
+            deflater.setDictionary(compression.dictionary());
+        }
+        if (content.hasArray()) {
+            deflater.setInput(content.array(), content.arrayOffset() + content.readerIndex(), length);
+        } else {
+            deflater.setInput(ByteBufUtil.getBytes(content));
+        }
+        deflater.finish();
+        ByteBuf compressed = ctx.alloc().heapBuffer(4 + length);
+        compressed.writeInt(length);
+        byte[] array = compressed.array();
+        int offset = compressed.arrayOffset() + compressed.writerIndex();
+        int written = 0;
+        int limit = length - 1;
+        while (!deflater.finished() && written < limit) {
+            written += deflater.deflate(array, offset + written, limit - written);
+        }
+        if (!deflater.finished()) {
+            compressed.release();
+            return null;
+        }
+        compressed.writerIndex(compressed.writerIndex() + written);
+        return compressed;
+    }
 
-public class MyPeronEncoder extends MessageToByteEncoder<PersonProtocol> {
     @Override
-    protected void encode(ChannelHandlerContext ctx, PersonProtocol msg, ByteBuf out) throws Exception {
-        out.writeInt(msg.getLength());
-        out.writeBytes(msg.getContent());
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        super.handlerRemoved(ctx);
     }
 }
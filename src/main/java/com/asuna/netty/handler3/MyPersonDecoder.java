@@ -1,19 +1,205 @@
 package com.asuna.netty.handler3;
 
+import com.asuna.netty.util.Crc32cTrailerDecoder;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.compression.Snappy;
 
 import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 状态机版本的PersonProtocol解码器，代替原来的ReplayingDecoder
+ * ReplayingDecoder在数据不够时抛出内部的Signal，下次读到数据再从readInt重新开始，帧被拆成很多小段时每段都要重跑一遍；
+ * 这里记住已经读出的长度，内容没到齐时直接返回，等到齐后把content切成入站数据的retainedSlice，不再拷贝成byte[]
+ * 压缩的帧（格式见PersonCompression）按帧里的原始长度分配好池化的缓冲区，直接解压进去
+ * 开启checksum时帧末尾有4字节的CRC32C（对压缩后的内容计算，长度字段包括它），先校验再解压
+ */
+public class MyPersonDecoder extends ByteToMessageDecoder {
+    //content的最大长度，长度字段是对端发来的，不检查的话一个错误的长度就能让我们分配一个超大数组
+    public static final int DEFAULT_MAX_LENGTH = 8 * 1024 * 1024;
+
+    private enum State {
+        READ_LENGTH,
+        READ_CONTENT
+    }
+
+    private final int maxLength;
+    //只用到里面的字典，压缩方式由每一帧自己的标志决定
+    private final PersonCompression compression;
+    private final boolean checksum;
+    private State state = State.READ_LENGTH;
+    //已经读出的content长度和压缩方式
+    private int length;
+    private PersonCompression.Codec codec;
+    private Snappy snappy;
+    private Inflater inflater;
+
+    public MyPersonDecoder() {
+        this(DEFAULT_MAX_LENGTH);
+    }
+
+    public MyPersonDecoder(int maxLength) {
+        this(maxLength, PersonCompression.NONE);
+    }
+
+    public MyPersonDecoder(int maxLength, PersonCompression compression) {
+        this(maxLength, compression, false);
+    }
+
+    public MyPersonDecoder(int maxLength, PersonCompression compression, boolean checksum) {
+        this.maxLength = maxLength;
+        this.compression = compression;
+        this.checksum = checksum;
+    }
 
-public class MyPersonDecoder extends ReplayingDecoder<Void> {
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        int length = in.readInt();
-        byte[] content = new byte[length];
-        in.readBytes(content);
-        PersonProtocol protocol = new PersonProtocol();
-        protocol.setContent(content);
-        protocol.setLength(length);
+        //一次读到多个帧时全部解完
+        for (;;) {
+            switch (state) {
+                case READ_LENGTH:
+                    if (in.readableBytes() < 4) {
+                        return;
+                    }
+                    int header = in.readInt();
+                    codec = PersonCompression.Codec.valueOf(header >>> PersonCompression.CODEC_SHIFT);
+                    length = header & PersonCompression.LENGTH_MASK;
+                    if (codec == null) {
+                        in.skipBytes(in.readableBytes());
+                        throw new CorruptedFrameException("unknown person codec: "
+                                + (header >>> PersonCompression.CODEC_SHIFT));
+                    }
+                    if (length > maxLength) {
+                        //长度错了后面的数据就没法再分帧了，跳过剩下的数据，交给exceptionCaught处理
+                        in.skipBytes(in.readableBytes());
+                        throw new TooLongFrameException("invalid person length: " + length
+                                + " (expected: 0-" + maxLength + ")");
+                    }
+                    state = State.READ_CONTENT;
+                    //回到循环开头按新状态读内容，不依赖case穿透
+                    continue;
+                case READ_CONTENT:
+                    if (in.readableBytes() < length) {
+                        return;
+                    }
+                    //先切换状态，解压失败时这一帧已经被跳过，后面的帧还能接着解析
+                    state = State.READ_LENGTH;
+                    ByteBuf body = in.readSlice(length);
+                    if (checksum) {
+                        body = Crc32cTrailerDecoder.verify(body);
+                    }
+                    ByteBuf content = codec == PersonCompression.Codec.NONE ? body.retain() : decompress(ctx, body);
+                    out.add(PersonProtocol.newInstance(content));
+                    break;
+                default:
+                    throw new Error("Shouldn't reach here.");
+            }
+        }
+    }
+
+    private ByteBuf decompress(ChannelHandlerContext ctx, ByteBuf compressed) throws Exception {
+        if (compressed.readableBytes() < 4) {
+            throw new CorruptedFrameException("compressed person frame too short");
+        }
+        int originalLength = compressed.readInt();
+        if (originalLength < 0 || originalLength > maxLength) {
+            throw new TooLongFrameException("invalid person length: " + originalLength
+                    + " (expected: 0-" + maxLength + ")");
+        }
+        if (codec == PersonCompression.Codec.SNAPPY) {
+            if (snappy == null) {
+                snappy = new Snappy();
+            }
+            //最大容量就是原始长度，数据不对时不会无限扩容；内容按块压缩，逐块解压到同一个缓冲区里
+            ByteBuf content = ctx.alloc().buffer(originalLength, originalLength);
+            try {
+                while (compressed.isReadable()) {
+                    if (compressed.readableBytes() < 4) {
+                        throw new CorruptedFrameException("truncated snappy block header");
+                    }
+                    int blockLength = compressed.readInt();
+                    if (blockLength < 0 || blockLength > compressed.readableBytes()) {
+                        throw new CorruptedFrameException("invalid snappy block length: " + blockLength);
+                    }
+                    snappy.decode(compressed.readSlice(blockLength), content);
+                    snappy.reset();
+                }
+            } catch (Exception e) {
+                content.release();
+                throw e instanceof CorruptedFrameException ? e : new CorruptedFrameException(e);
+            } finally {
+                snappy.reset();
+            }
+            return checkLength(content, originalLength);
+        }
+        return checkLength(inflate(ctx, compressed, originalLength), originalLength);
+    }
+
+    /**
+     * Java 8的Inflater只能处理byte[]，解压进池化的堆缓冲区的数组
+     */
+    private ByteBuf inflate(ChannelHandlerContext ctx, ByteBuf compressed, int originalLength) throws Exception {
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        inflater.reset();
+        int length = compressed.readableBytes();
+        if (compressed.hasArray()) {
+            inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.readerIndex(), length);
+        } else {
+            byte[] input = new byte[length];
+            compressed.getBytes(compressed.readerIndex(), input);
+            inflater.setInput(input);
+        }
+        ByteBuf content = ctx.alloc().heapBuffer(originalLength, originalLength);
+        try {
+            byte[] array = content.array();
+            int offset = content.arrayOffset();
+            int written = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(array, offset + written, originalLength - written);
+                written += n;
+                if (n == 0 && inflater.needsDictionary()) {
+                    //zlib头里带着字典的Adler32，和自己的字典对不上就不能解
+                    if (compression.dictionary() == null || inflater.getAdler() != compression.dictionaryId()) {
+                        throw new CorruptedFrameException("person frame needs an unknown dictionary: "
+                                + inflater.getAdler());
+                    }
+                    inflater.setDictionary(compression.dictionary());
+                } else if (n == 0 && (inflater.needsInput() || written == originalLength)) {
+                    throw new CorruptedFrameException("person frame is truncated or longer than " + originalLength);
+                }
+            }
+            content.writerIndex(written);
+            return content;
+        } catch (DataFormatException e) {
+            content.release();
+            throw new CorruptedFrameException(e);
+        } catch (Exception e) {
+            content.release();
+            throw e;
+        }
+    }
+
+    private static ByteBuf checkLength(ByteBuf content, int originalLength) {
+        int length = content.readableBytes();
+        if (length != originalLength) {
+            content.release();
+            throw new CorruptedFrameException("decompressed " + length + " bytes, expected " + originalLength);
+        }
+        return content;
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.asuna.netty.handler3;
 
+import com.asuna.netty.util.BusinessExecutors;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.EventLoopGroup;
@@ -7,16 +8,19 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
 
 public class MyServer {
     public static void main(String[] args) {
         EventLoopGroup bossGroup = new NioEventLoopGroup(1);
         EventLoopGroup workerGroup = new NioEventLoopGroup();
+        //MyServerHandler在业务线程池上执行，同一个连接的消息仍然按顺序处理
+        EventExecutorGroup businessGroup = BusinessExecutors.newOrdered("business", 16, 10000);
         try {
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             serverBootstrap.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
                     .handler(new LoggingHandler(LogLevel.DEBUG))
-                    .childHandler(new MyServerInitializer());
+                    .childHandler(new MyServerInitializer(businessGroup));
             ChannelFuture channelFuture = serverBootstrap.bind(8899).sync();
             channelFuture.channel().closeFuture().sync();
         } catch (InterruptedException e) {
@@ -24,6 +28,7 @@ public class MyServer {
         } finally {
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
+            businessGroup.shutdownGracefully();
         }
     }
 }
@@ -1,33 +1,27 @@
 package com.asuna.netty.handler3;
 
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 
-import java.nio.charset.Charset;
 import java.util.UUID;
 
 public class MyServerHandler extends SimpleChannelInboundHandler<PersonProtocol> {
     private int count;
+    //每个连接一个处理器，同一时间只处理一条消息，读取记录的对象可以复用
+    private final SchemaRecord record = new SchemaRecord(PersonSchema.SCHEMA);
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, PersonProtocol msg) throws Exception {
-        int length = msg.getLength();
-        byte[] content = msg.getContent();
-
+        //只读出路由需要的id和city，age和name不解码
+        SchemaRecord person = record.wrap(msg.content());
         System.out.println("server recv:");
-        System.out.println("length:" + length);
-        System.out.println("content:" + new String(content, Charset.forName("utf-8")));
+        System.out.println("length:" + msg.getLength());
+        System.out.println("id:" + person.getLong(PersonSchema.ID) + ", city:" + person.getString(PersonSchema.CITY));
 
         System.out.println("count:" + (++count));
 
-        String response = UUID.randomUUID().toString();
-        int resLenth = response.getBytes("utf-8").length;
-        byte[] resContent = response.getBytes("utf-8");
-
-        PersonProtocol protocol = new PersonProtocol();
-        protocol.setLength(resLenth);
-        protocol.setContent(resContent);
-
-        ctx.writeAndFlush(protocol);
+        //响应内容直接编码进ByteBuf，长度就是它的可读字节数
+        ctx.writeAndFlush(PersonProtocol.newInstance(ByteBufUtil.writeUtf8(ctx.alloc(), UUID.randomUUID().toString())));
     }
 
     @Override
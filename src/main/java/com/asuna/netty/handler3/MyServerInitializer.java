@@ -1,16 +1,52 @@
 package com.asuna.netty.handler3;
 
+import com.asuna.netty.util.BusinessBackpressureHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.EventExecutorGroup;
 
 public class MyServerInitializer extends ChannelInitializer<SocketChannel> {
+    //超过1K的内容用Snappy压缩，小消息压缩不划算
+    public static final PersonCompression DEFAULT_COMPRESSION = PersonCompression.snappy(1024);
+    //默认不带CRC32C校验，TCP本身有校验，需要端到端校验时两端一起开启
+    public static final boolean DEFAULT_CHECKSUM = false;
+
+    //MyServerHandler所在的业务线程池，为null时直接在I/O线程上执行
+    private final EventExecutorGroup businessGroup;
+    private final PersonCompression compression;
+    //每个帧末尾是否带CRC32C，两端必须一致
+    private final boolean checksum;
+
+    public MyServerInitializer() {
+        this(null);
+    }
+
+    public MyServerInitializer(EventExecutorGroup businessGroup) {
+        this(businessGroup, DEFAULT_COMPRESSION);
+    }
+
+    public MyServerInitializer(EventExecutorGroup businessGroup, PersonCompression compression) {
+        this(businessGroup, compression, DEFAULT_CHECKSUM);
+    }
+
+    public MyServerInitializer(EventExecutorGroup businessGroup, PersonCompression compression, boolean checksum) {
+        this.businessGroup = businessGroup;
+        this.compression = compression;
+        this.checksum = checksum;
+    }
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
 
-        pipeline.addLast(new MyPersonDecoder());
-        pipeline.addLast(new MyPeronEncoder());
-        pipeline.addLast(new MyServerHandler());
+        //解码器能解所有压缩方式的帧，compression只提供deflate的字典
+        pipeline.addLast(new MyPersonDecoder(MyPersonDecoder.DEFAULT_MAX_LENGTH, compression, checksum));
+        pipeline.addLast(new MyPeronEncoder(compression, checksum));
+        if (businessGroup != null) {
+            //业务线程的任务队列积压时暂停读
+            pipeline.addLast(new BusinessBackpressureHandler("MyServerHandler"));
+        }
+        pipeline.addLast(businessGroup, "MyServerHandler", new MyServerHandler());
     }
 }
@@ -0,0 +1,63 @@
+package com.asuna.netty.handler3;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 用EmbeddedChannel把各种大小的内容走一遍MyPeronEncoder -> MyPersonDecoder，检查解出来的和原来一样
+ * 重点是超过64K的内容（Snappy要分块）和从池化缓冲区中间切出来的内容，有不一致时抛AssertionError
+ */
+public class PersonCodecCheck {
+    private static final int[] SIZES = {0, 4096, 32767, 32768, 70000, 1024 * 1024};
+
+    public static void main(String[] args) {
+        PersonCompression[] compressions = {PersonCompression.NONE, PersonCompression.snappy(1024),
+                PersonCompression.deflate(1024, null)};
+        Random random = new Random(0);
+        for (PersonCompression compression : compressions) {
+            for (boolean checksum : new boolean[]{false, true}) {
+                for (int size : SIZES) {
+                    byte[] data = new byte[size];
+                    for (int i = 0; i < size; i++) {
+                        //可压缩但不是全都一样的内容
+                        data[i] = (byte) ('a' + random.nextInt(random.nextInt(10) == 0 ? 26 : 4));
+                    }
+                    roundTrip(compression, checksum, data);
+                }
+            }
+            System.out.println(compression.codec() + " ok");
+        }
+    }
+
+    private static void roundTrip(PersonCompression compression, boolean checksum, byte[] data) {
+        //内容从缓冲区的中间开始，和解码器切出来的retainedSlice一样
+        ByteBuf backing = PooledByteBufAllocator.DEFAULT.directBuffer(data.length + 64)
+                .writeZero(13).writeBytes(data).writeZero(51);
+        ByteBuf content = backing.retainedSlice(13, data.length);
+        backing.release();
+
+        EmbeddedChannel encoder = new EmbeddedChannel(new MyPeronEncoder(compression, checksum));
+        EmbeddedChannel decoder = new EmbeddedChannel(
+                new MyPersonDecoder(MyPersonDecoder.DEFAULT_MAX_LENGTH, compression, checksum));
+        encoder.writeOutbound(PersonProtocol.newInstance(content));
+        decoder.writeInbound((ByteBuf) encoder.readOutbound());
+        PersonProtocol decoded = decoder.readInbound();
+        try {
+            if (decoded == null || !Arrays.equals(ByteBufUtil.getBytes(decoded.content()), data)) {
+                throw new AssertionError(compression.codec() + ", checksum " + checksum
+                        + ": " + data.length + " bytes didn't round trip");
+            }
+        } finally {
+            if (decoded != null) {
+                decoded.release();
+            }
+            encoder.finishAndReleaseAll();
+            decoder.finishAndReleaseAll();
+        }
+    }
+}
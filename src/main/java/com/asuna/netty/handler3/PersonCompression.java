@@ -0,0 +1,95 @@
+package com.asuna.netty.handler3;
+
+import java.util.zip.Adler32;
+
+/**
+ * PersonProtocol帧的压缩设置，MyPeronEncoder和MyPersonDecoder两端共用
+ * 长度字段的高2位是压缩标志，低30位是后面的字节数；不压缩的帧标志为0，和原来的格式完全一样
+ * 压缩的帧在内容前面多4个字节的原始长度，解码时按它一次分配好池化的缓冲区
+ * Snappy每次最多压缩SNAPPY_BLOCK_LENGTH字节，超过的内容分成多块，每块是4字节的压缩后长度加一个Snappy块
+ * SNAPPY：Netty自带的Snappy，速度快，适合较大的消息
+ * DEFLATE：java.util.zip的deflate（最快档），可以带预置字典，小而重复的消息靠字典才压得动；
+ * 用了字典时zlib头里带着字典的Adler32，解码端字典不一致会直接报错而不是解出错误的数据
+ * 压缩后不比原来小的消息照原样发送
+ */
+public final class PersonCompression {
+    public enum Codec {
+        NONE(0),
+        SNAPPY(1),
+        DEFLATE(2);
+
+        final int flag;
+
+        Codec(int flag) {
+            this.flag = flag;
+        }
+
+        static Codec valueOf(int flag) {
+            for (Codec codec : values()) {
+                if (codec.flag == flag) {
+                    return codec;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final int CODEC_SHIFT = 30;
+    static final int LENGTH_MASK = (1 << CODEC_SHIFT) - 1;
+    //Netty的Snappy用short做哈希表和复制偏移，一块不能超过Short.MAX_VALUE
+    static final int SNAPPY_BLOCK_LENGTH = Short.MAX_VALUE;
+
+    public static final PersonCompression NONE = new PersonCompression(Codec.NONE, Integer.MAX_VALUE, null);
+
+    private final Codec codec;
+    private final int threshold;
+    private final byte[] dictionary;
+    private final int dictionaryId;
+
+    private PersonCompression(Codec codec, int threshold, byte[] dictionary) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold: " + threshold + " (expected: >= 0)");
+        }
+        this.codec = codec;
+        this.threshold = threshold;
+        this.dictionary = dictionary;
+        if (dictionary != null) {
+            Adler32 adler = new Adler32();
+            adler.update(dictionary);
+            this.dictionaryId = (int) adler.getValue();
+        } else {
+            this.dictionaryId = 0;
+        }
+    }
+
+    /**
+     * 内容达到threshold字节时用Snappy压缩
+     */
+    public static PersonCompression snappy(int threshold) {
+        return new PersonCompression(Codec.SNAPPY, threshold, null);
+    }
+
+    /**
+     * 内容达到threshold字节时用deflate压缩，dictionary为null时不用字典
+     * 字典放常见的字段名、取值这类片段，越常见的放越后面；两端必须是同一份字典
+     */
+    public static PersonCompression deflate(int threshold, byte[] dictionary) {
+        return new PersonCompression(Codec.DEFLATE, threshold, dictionary == null ? null : dictionary.clone());
+    }
+
+    public Codec codec() {
+        return codec;
+    }
+
+    boolean shouldCompress(int length) {
+        return codec != Codec.NONE && length >= threshold;
+    }
+
+    byte[] dictionary() {
+        return dictionary;
+    }
+
+    int dictionaryId() {
+        return dictionaryId;
+    }
+}
@@ -1,22 +1,73 @@
 package com.asuna.netty.handler3;
 
-public class PersonProtocol {
-    private int length;
-    private byte[] content;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.Recycler;
 
-    public int getLength() {
-        return length;
+/**
+ * 一条PersonProtocol消息，线上格式是4字节长度加内容
+ * content可以是任意字节，也可以是按Schema编码的记录（见record(Schema)）
+ * content直接引用ByteBuf：解码时是入站帧的retainedSlice，编码时和长度头拼成CompositeByteBuf写出，两边都不拷贝内容
+ * 对象本身通过Recycler复用，引用计数归零时释放content并回收；
+ * SimpleChannelInboundHandler和编码器处理完会自动release，自己持有时要retain
+ */
+public final class PersonProtocol extends AbstractReferenceCounted {
+    private static final Recycler<PersonProtocol> RECYCLER = new Recycler<PersonProtocol>() {
+        @Override
+        protected PersonProtocol newObject(Handle<PersonProtocol> handle) {
+            return new PersonProtocol(handle);
+        }
+    };
+
+    private final Recycler.Handle<PersonProtocol> handle;
+    private ByteBuf content;
+
+    private PersonProtocol(Recycler.Handle<PersonProtocol> handle) {
+        this.handle = handle;
     }
 
-    public void setLength(int length) {
-        this.length = length;
+    /**
+     * content的所有权交给返回的PersonProtocol，它被release时content也一起release
+     */
+    public static PersonProtocol newInstance(ByteBuf content) {
+        PersonProtocol protocol = RECYCLER.get();
+        protocol.setRefCnt(1);
+        protocol.content = content;
+        return protocol;
+    }
+
+    public int getLength() {
+        return content.readableBytes();
     }
 
-    public byte[] getContent() {
+    public ByteBuf content() {
         return content;
     }
 
-    public void setContent(byte[] content) {
-        this.content = content;
+    /**
+     * 把content当作schema描述的记录按需读取字段，不拷贝也不做完整解码；只在这条消息release之前有效
+     */
+    public SchemaRecord record(Schema schema) {
+        return new SchemaRecord(schema, content);
+    }
+
+    @Override
+    public PersonProtocol retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public PersonProtocol touch(Object hint) {
+        content.touch(hint);
+        return this;
+    }
+
+    @Override
+    protected void deallocate() {
+        ByteBuf content = this.content;
+        this.content = null;
+        content.release();
+        handle.recycle(this);
     }
 }
@@ -0,0 +1,21 @@
+package com.asuna.netty.handler3;
+
+/**
+ * PersonProtocol里放的人员记录：id定长放在最前面，路由时不用解析后面的字段就能直接读出来
+ */
+public final class PersonSchema {
+    public static final Schema SCHEMA = Schema.builder("person")
+            .int64("id")
+            .varint("age")
+            .string("name")
+            .string("city")
+            .build();
+
+    public static final Schema.Field ID = SCHEMA.field("id");
+    public static final Schema.Field AGE = SCHEMA.field("age");
+    public static final Schema.Field NAME = SCHEMA.field("name");
+    public static final Schema.Field CITY = SCHEMA.field("city");
+
+    private PersonSchema() {
+    }
+}
@@ -0,0 +1,170 @@
+package com.asuna.netty.handler3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 描述一种紧凑二进制记录的格式：字段按声明顺序依次排列，没有字段名和标签
+ * INT32/INT64/BOOL定长大端；VARINT是zig-zag后的varint；STRING是varint长度加UTF-8字节
+ * 创建时算好每个字段的偏移：前面全是定长字段的，偏移是常量，读取时直接定位；
+ * 前面有变长字段的由SchemaRecord在第一次访问时跳过前面的字段算出来并记住
+ * Schema不可变，可以在所有连接之间共享
+ */
+public final class Schema {
+
+    public enum Type {
+        INT32(4),
+        INT64(8),
+        BOOL(1),
+        VARINT(-1),
+        STRING(-1);
+
+        //定长类型的字节数，变长为-1
+        final int width;
+
+        Type(int width) {
+            this.width = width;
+        }
+    }
+
+    public static final class Field {
+        private final Schema schema;
+        private final String name;
+        private final Type type;
+        private final int index;
+
+        private Field(Schema schema, String name, Type type, int index) {
+            this.schema = schema;
+            this.name = name;
+            this.type = type;
+            this.index = index;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public Type type() {
+            return type;
+        }
+
+        int index() {
+            return index;
+        }
+
+        Schema schema() {
+            return schema;
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + type;
+        }
+    }
+
+    private final String name;
+    private final List<Field> fields;
+    //字段相对记录开头的固定偏移，前面有变长字段时为-1；最后多一项是全部定长时记录的总长度
+    private final int[] fixedOffsets;
+
+    private Schema(String name, List<String> names, List<Type> types) {
+        this.name = name;
+        List<Field> fields = new ArrayList<>(names.size());
+        int[] fixedOffsets = new int[names.size() + 1];
+        int offset = 0;
+        for (int i = 0; i < names.size(); i++) {
+            fields.add(new Field(this, names.get(i), types.get(i), i));
+            fixedOffsets[i] = offset;
+            int width = types.get(i).width;
+            offset = offset < 0 || width < 0 ? -1 : offset + width;
+        }
+        fixedOffsets[names.size()] = offset;
+        this.fields = Collections.unmodifiableList(fields);
+        this.fixedOffsets = fixedOffsets;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<Field> fields() {
+        return fields;
+    }
+
+    public Field field(String name) {
+        for (Field field : fields) {
+            if (field.name.equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("no field " + name + " in schema " + this.name);
+    }
+
+    int size() {
+        return fields.size();
+    }
+
+    Field field(int index) {
+        return fields.get(index);
+    }
+
+    /**
+     * index == size()时是记录的总长度
+     */
+    int fixedOffset(int index) {
+        return fixedOffsets[index];
+    }
+
+    @Override
+    public String toString() {
+        return name + fields;
+    }
+
+    public static final class Builder {
+        private final String name;
+        private final List<String> names = new ArrayList<>();
+        private final List<Type> types = new ArrayList<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder int32(String name) {
+            return add(name, Type.INT32);
+        }
+
+        public Builder int64(String name) {
+            return add(name, Type.INT64);
+        }
+
+        public Builder bool(String name) {
+            return add(name, Type.BOOL);
+        }
+
+        public Builder varint(String name) {
+            return add(name, Type.VARINT);
+        }
+
+        public Builder string(String name) {
+            return add(name, Type.STRING);
+        }
+
+        public Builder add(String name, Type type) {
+            if (names.contains(name)) {
+                throw new IllegalArgumentException("duplicate field: " + name);
+            }
+            names.add(name);
+            types.add(type);
+            return this;
+        }
+
+        public Schema build() {
+            return new Schema(name, names, types);
+        }
+    }
+}
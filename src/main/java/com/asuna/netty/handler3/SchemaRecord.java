@@ -0,0 +1,174 @@
+package com.asuna.netty.handler3;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.CharsetUtil;
+
+import java.util.Arrays;
+
+/**
+ * 按Schema直接读ByteBuf里的一条记录，只解码访问到的字段，不构造完整的对象
+ * 只需要一两个字段的路由节点不用为其余字段付出解码的代价；字符串可以只取切片不解码成String
+ * 字段偏移按需算出并记住，同一条记录再次访问不会重新跳过前面的字段
+ * 不持有buffer的引用计数；可以用wrap换一条记录复用同一个实例，非线程安全
+ */
+public final class SchemaRecord {
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    private final Schema schema;
+    //每个字段相对记录开头的偏移，前resolved个已经算出
+    private final int[] offsets;
+    private int resolved;
+    private ByteBuf buffer;
+    private int base;
+    private int end;
+    //最近一次readVarintAt读了几个字节
+    private int varintLength;
+
+    public SchemaRecord(Schema schema) {
+        this.schema = schema;
+        this.offsets = new int[schema.size() + 1];
+    }
+
+    public SchemaRecord(Schema schema, ByteBuf buffer) {
+        this(schema);
+        wrap(buffer);
+    }
+
+    /**
+     * 指向buffer从readerIndex到writerIndex的一条记录，不改变buffer的读写位置
+     */
+    public SchemaRecord wrap(ByteBuf buffer) {
+        this.buffer = buffer;
+        this.base = buffer.readerIndex();
+        this.end = buffer.writerIndex();
+        offsets[0] = 0;
+        resolved = 1;
+        return this;
+    }
+
+    public Schema schema() {
+        return schema;
+    }
+
+    public int getInt(Schema.Field field) {
+        return buffer.getInt(checkedIndex(field, Schema.Type.INT32, 4));
+    }
+
+    public long getLong(Schema.Field field) {
+        if (field.type() == Schema.Type.VARINT) {
+            long raw = readVarintAt(base + offset(field));
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+        return buffer.getLong(checkedIndex(field, Schema.Type.INT64, 8));
+    }
+
+    public boolean getBoolean(Schema.Field field) {
+        return buffer.getByte(checkedIndex(field, Schema.Type.BOOL, 1)) != 0;
+    }
+
+    /**
+     * 字符串的UTF-8字节，是记录的切片，不拷贝也不解码；生命周期跟着原来的buffer
+     */
+    public ByteBuf getStringBytes(Schema.Field field) {
+        checkType(field, Schema.Type.STRING);
+        int index = base + offset(field);
+        long length = readVarintAt(index);
+        int start = index + varintLength;
+        //10字节的varint最高位是1时读出来是负数，也是坏数据
+        if (length < 0 || length > end - start) {
+            throw new CorruptedFrameException("string " + field.name() + " exceeds record: " + length);
+        }
+        return buffer.slice(start, (int) length);
+    }
+
+    public String getString(Schema.Field field) {
+        ByteBuf bytes = getStringBytes(field);
+        return bytes.toString(CharsetUtil.UTF_8);
+    }
+
+    /**
+     * 整条记录的字节数，需要跳过所有变长字段
+     */
+    public int length() {
+        return offset(schema.size());
+    }
+
+    private int checkedIndex(Schema.Field field, Schema.Type type, int width) {
+        checkType(field, type);
+        int index = base + offset(field);
+        if (index + width > end) {
+            throw new CorruptedFrameException("field " + field.name() + " exceeds record");
+        }
+        return index;
+    }
+
+    private void checkType(Schema.Field field, Schema.Type type) {
+        if (field.schema() != schema) {
+            throw new IllegalArgumentException(field + " does not belong to schema " + schema.name());
+        }
+        if (field.type() != type) {
+            throw new IllegalArgumentException(field + " is not " + type);
+        }
+    }
+
+    private int offset(Schema.Field field) {
+        if (field.schema() != schema) {
+            throw new IllegalArgumentException(field + " does not belong to schema " + schema.name());
+        }
+        return offset(field.index());
+    }
+
+    /**
+     * 第index个字段的偏移，index == size时是记录的总长度
+     * 前面全是定长字段的直接用Schema里的常量；否则从最后一个已知的字段往后跳，跳过的都记下来
+     */
+    private int offset(int index) {
+        int fixed = schema.fixedOffset(index);
+        if (fixed >= 0) {
+            return fixed;
+        }
+        while (resolved <= index) {
+            int previous = resolved - 1;
+            int start = offsets[previous];
+            Schema.Type type = schema.field(previous).type();
+            int next;
+            if (type.width >= 0) {
+                next = start + type.width;
+            } else {
+                long value = readVarintAt(base + start);
+                next = start + varintLength;
+                if (type == Schema.Type.STRING) {
+                    if (value < 0 || value > end - base - next) {
+                        throw new CorruptedFrameException("string " + schema.field(previous).name()
+                                + " exceeds record: " + value);
+                    }
+                    next += (int) value;
+                }
+            }
+            offsets[resolved++] = next;
+        }
+        return offsets[index];
+    }
+
+    private long readVarintAt(int index) {
+        long value = 0;
+        for (int i = 0; i < MAX_VARINT_LENGTH; i++) {
+            if (index + i >= end) {
+                throw new CorruptedFrameException("truncated varint");
+            }
+            byte b = buffer.getByte(index + i);
+            value |= (long) (b & 0x7F) << (7 * i);
+            if (b >= 0) {
+                varintLength = i + 1;
+                return value;
+            }
+        }
+        throw new CorruptedFrameException("varint longer than " + MAX_VARINT_LENGTH + " bytes");
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaRecord(" + schema.name() + ", offsets: " + Arrays.toString(Arrays.copyOf(offsets, resolved)) + ")";
+    }
+}
@@ -0,0 +1,101 @@
+package com.asuna.netty.handler3;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * 按Schema把一条记录写进ByteBuf，字段必须按声明顺序逐个写，写错顺序或类型时抛IllegalStateException
+ * 不经过反射，也不先构造对象，直接写出字段的值
+ */
+public final class SchemaWriter {
+    private final Schema schema;
+    private ByteBuf out;
+    private int next;
+
+    public SchemaWriter(Schema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * 开始往out里写一条新记录，可以复用同一个实例写多条
+     */
+    public SchemaWriter begin(ByteBuf out) {
+        this.out = out;
+        this.next = 0;
+        return this;
+    }
+
+    public SchemaWriter writeInt(Schema.Field field, int value) {
+        expect(field, Schema.Type.INT32);
+        out.writeInt(value);
+        return this;
+    }
+
+    public SchemaWriter writeLong(Schema.Field field, long value) {
+        if (field.type() == Schema.Type.VARINT) {
+            expect(field, Schema.Type.VARINT);
+            writeVarint((value << 1) ^ (value >> 63));
+        } else {
+            expect(field, Schema.Type.INT64);
+            out.writeLong(value);
+        }
+        return this;
+    }
+
+    public SchemaWriter writeBoolean(Schema.Field field, boolean value) {
+        expect(field, Schema.Type.BOOL);
+        out.writeBoolean(value);
+        return this;
+    }
+
+    public SchemaWriter writeString(Schema.Field field, CharSequence value) {
+        expect(field, Schema.Type.STRING);
+        writeVarint(ByteBufUtil.utf8Bytes(value));
+        ByteBufUtil.writeUtf8(out, value);
+        return this;
+    }
+
+    /**
+     * 已经是UTF-8字节的字符串直接拷过去，比如转发别的记录里getStringBytes取出的切片
+     */
+    public SchemaWriter writeString(Schema.Field field, ByteBuf utf8) {
+        expect(field, Schema.Type.STRING);
+        writeVarint(utf8.readableBytes());
+        out.writeBytes(utf8, utf8.readerIndex(), utf8.readableBytes());
+        return this;
+    }
+
+    /**
+     * 检查所有字段都已经写完
+     */
+    public ByteBuf end() {
+        if (next != schema.size()) {
+            throw new IllegalStateException("missing field " + schema.field(next) + " in " + schema.name());
+        }
+        ByteBuf out = this.out;
+        this.out = null;
+        return out;
+    }
+
+    private void expect(Schema.Field field, Schema.Type type) {
+        if (out == null) {
+            throw new IllegalStateException("begin() not called");
+        }
+        if (next == schema.size() || schema.field(next) != field) {
+            throw new IllegalStateException("expected " + (next == schema.size() ? "end" : schema.field(next))
+                    + " but got " + field);
+        }
+        if (field.type() != type) {
+            throw new IllegalArgumentException(field + " is not " + type);
+        }
+        next++;
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
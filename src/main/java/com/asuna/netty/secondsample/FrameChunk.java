@@ -0,0 +1,57 @@
+package com.asuna.netty.secondsample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+
+/**
+ * 超过流式阈值的大帧被拆成的一段，内容是累积缓冲区的retainedSlice
+ * 同一帧的各段按顺序到达，最后一段的isLast()为true
+ */
+public final class FrameChunk extends DefaultByteBufHolder {
+    //整帧的长度
+    private final int frameLength;
+    private final boolean last;
+
+    public FrameChunk(ByteBuf content, int frameLength, boolean last) {
+        super(content);
+        this.frameLength = frameLength;
+        this.last = last;
+    }
+
+    public int frameLength() {
+        return frameLength;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+
+    @Override
+    public FrameChunk replace(ByteBuf content) {
+        return new FrameChunk(content, frameLength, last);
+    }
+
+    @Override
+    public FrameChunk retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public FrameChunk retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public FrameChunk touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public FrameChunk touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+}
@@ -0,0 +1,29 @@
+package com.asuna.netty.secondsample;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * 处理流式输出的大帧：每段处理完就释放，整帧收完后回复收到的字节数
+ * 真实场景可以在这里把数据边收边写到文件或者转发出去
+ */
+public class LargeFrameHandler extends SimpleChannelInboundHandler<FrameChunk> {
+    //当前帧已经收到的字节数
+    private long received;
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FrameChunk msg) throws Exception {
+        received += msg.content().readableBytes();
+        if (msg.isLast()) {
+            System.out.println(ctx.channel().remoteAddress() + ", large frame: " + received + " bytes");
+            ctx.writeAndFlush("from server: received " + received + " bytes");
+            received = 0;
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        super.exceptionCaught(ctx, cause);
+        ctx.close();
+    }
+}
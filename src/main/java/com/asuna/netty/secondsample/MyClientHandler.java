@@ -8,9 +8,9 @@ import java.time.LocalDateTime;
 /**
  * 客户端自己的业务处理器，服务器给他发消息时会调用的方法
  */
-public class MyClientHandler extends SimpleChannelInboundHandler<String> {
+public class MyClientHandler extends SimpleChannelInboundHandler<TextFrame> {
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, String msg) throws Exception {
+    protected void channelRead0(ChannelHandlerContext ctx, TextFrame msg) throws Exception {
         System.out.println(ctx.channel().remoteAddress());
         System.out.println("client output" + msg);
         ctx.writeAndFlush("from client:" + LocalDateTime.now());
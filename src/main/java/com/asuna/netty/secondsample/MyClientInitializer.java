@@ -1,29 +1,43 @@
 package com.asuna.netty.secondsample;
 
+import com.asuna.netty.util.Crc32cTrailerDecoder;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
-import io.netty.util.CharsetUtil;
+import io.netty.handler.flush.FlushConsolidationHandler;
 
 public class MyClientInitializer extends ChannelInitializer<SocketChannel> {
+    //每个帧末尾是否带CRC32C，要和服务端一致
+    private final boolean checksum;
+
+    public MyClientInitializer() {
+        this(false);
+    }
+
+    public MyClientInitializer(boolean checksum) {
+        this.checksum = checksum;
+    }
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
         /**
-         * LengthFieldBasedFrameDecoder: 字符长度编解码器
-         * LengthFieldPrepender:
-         * StringDecoder，StringEncoder：字符串编解码器
+         * FlushConsolidationHandler，BackpressureHandler：和服务端一样合并flush，出站缓冲满了暂停读
+         * StreamingFrameDecoder: 字符长度编解码器，切出来的帧是累积缓冲区的retainedSlice，超长的帧立即拒绝
+         * Crc32cTrailerDecoder：开启checksum时校验并去掉帧末尾的CRC32C
+         * TextFrameDecoder：把帧包装成TextFrame，用到内容时才解码
+         * TextFrameEncoder：字符直接写进出站ByteBuf，长度字段原地回填，代替LengthFieldPrepender和StringEncoder
          *
          */
-        pipeline.addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4,0 ,4));
-        pipeline.addLast(new LengthFieldPrepender(4));
-        pipeline.addLast(new StringDecoder(CharsetUtil.UTF_8));
-        pipeline.addLast(new StringEncoder(CharsetUtil.UTF_8));
+        pipeline.addLast(new FlushConsolidationHandler(MyServerInitializer.EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+        pipeline.addLast(MyServerInitializer.BACKPRESSURE);
+        pipeline.addLast(new StreamingFrameDecoder(MyServerInitializer.DEFAULT_MAX_FRAME_LENGTH));
+        if (checksum) {
+            pipeline.addLast(Crc32cTrailerDecoder.INSTANCE);
+        }
+        pipeline.addLast(new TextFrameDecoder());
+        pipeline.addLast(new TextFrameEncoder(checksum));
         pipeline.addLast(new MyClientHandler());
     }
 }
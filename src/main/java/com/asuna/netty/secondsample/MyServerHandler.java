@@ -5,9 +5,9 @@ import io.netty.channel.SimpleChannelInboundHandler;
 
 import java.util.UUID;
 
-public class MyServerHandler extends SimpleChannelInboundHandler<String> {
+public class MyServerHandler extends SimpleChannelInboundHandler<TextFrame> {
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, String msg) throws Exception {
+    protected void channelRead0(ChannelHandlerContext ctx, TextFrame msg) throws Exception {
         System.out.println(ctx.channel().remoteAddress() + ", " + msg);
         ctx.channel().writeAndFlush("from server: " + UUID.randomUUID());
     }
@@ -1,28 +1,86 @@
 package com.asuna.netty.secondsample;
 
+import com.asuna.netty.util.BackpressureHandler;
+import com.asuna.netty.util.BusinessBackpressureHandler;
+import com.asuna.netty.util.Crc32cTrailerDecoder;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
-import io.netty.util.CharsetUtil;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
 
 public class MyServerInitializer extends ChannelInitializer<SocketChannel> {
+    //默认最大帧长度8M，超过的帧直接拒绝，不再允许对端让我们缓存2G的数据
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 8 * 1024 * 1024;
+    //连续这么多次flush才真正flush一次，读循环结束时会把剩下的一起flush
+    public static final int EXPLICIT_FLUSH_AFTER_FLUSHES = 256;
+    //出站缓冲超过64K暂停读，低于32K恢复
+    public static final BackpressureHandler BACKPRESSURE =
+            new BackpressureHandler(new WriteBufferWaterMark(32 * 1024, 64 * 1024));
+
+    //MyServerHandler所在的业务线程池，为null时直接在I/O线程上执行
+    private final EventExecutorGroup businessGroup;
+    private final int maxFrameLength;
+    //超过这个长度的帧按FrameChunk流式处理，0表示不开启
+    private final int streamThreshold;
+    //每个帧末尾是否带CRC32C，两端必须一致
+    private final boolean checksum;
+
+    public MyServerInitializer() {
+        this(null);
+    }
+
+    public MyServerInitializer(EventExecutorGroup businessGroup) {
+        this(businessGroup, DEFAULT_MAX_FRAME_LENGTH, 0);
+    }
+
+    public MyServerInitializer(EventExecutorGroup businessGroup, int maxFrameLength, int streamThreshold) {
+        this(businessGroup, maxFrameLength, streamThreshold, false);
+    }
+
+    public MyServerInitializer(EventExecutorGroup businessGroup, int maxFrameLength, int streamThreshold,
+                               boolean checksum) {
+        //流式的大帧收到一段就交出去一段，等不到末尾的校验码，两者不能同时开启
+        if (checksum && streamThreshold > 0) {
+            throw new IllegalArgumentException("checksum can't be used with streamThreshold: " + streamThreshold);
+        }
+        this.businessGroup = businessGroup;
+        this.maxFrameLength = maxFrameLength;
+        this.streamThreshold = streamThreshold;
+        this.checksum = checksum;
+    }
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
         /**
-         * LengthFieldBasedFrameDecoder: 字符长度编解码器
-         * LengthFieldPrepender:
-         * StringDecoder，StringEncoder：字符串编解码器
+         * FlushConsolidationHandler：合并flush，一批请求的响应只需要一次系统调用；
+         *                            业务处理器在其它线程上flush时也会合并
+         * BackpressureHandler：出站缓冲满了就暂停读
+         * StreamingFrameDecoder: 字符长度编解码器，切出来的帧是累积缓冲区的retainedSlice，
+         *                        超过maxFrameLength的帧立即拒绝，开启流式后大帧拆成FrameChunk输出
+         * Crc32cTrailerDecoder：开启checksum时校验并去掉帧末尾的CRC32C
+         * TextFrameDecoder：把帧包装成TextFrame，用到内容时才解码
+         * TextFrameEncoder：字符直接写进出站ByteBuf，长度字段原地回填，代替LengthFieldPrepender和StringEncoder
+         * BusinessBackpressureHandler：业务线程的任务队列积压时暂停读，两个业务处理器在同一个线程上
+         * LargeFrameHandler：处理流式输出的大帧
          *
          */
-        pipeline.addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4,0 ,4));
-        pipeline.addLast(new LengthFieldPrepender(4));
-        pipeline.addLast(new StringDecoder(CharsetUtil.UTF_8));
-        pipeline.addLast(new StringEncoder(CharsetUtil.UTF_8));
-        pipeline.addLast(new MyServerHandler());
+        pipeline.addLast(new FlushConsolidationHandler(EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+        pipeline.addLast(BACKPRESSURE);
+        pipeline.addLast(new StreamingFrameDecoder(maxFrameLength, streamThreshold));
+        if (checksum) {
+            pipeline.addLast(Crc32cTrailerDecoder.INSTANCE);
+        }
+        pipeline.addLast(new TextFrameDecoder());
+        pipeline.addLast(new TextFrameEncoder(checksum));
+        if (businessGroup != null) {
+            pipeline.addLast(new BusinessBackpressureHandler("MyServerHandler"));
+        }
+        if (streamThreshold > 0) {
+            pipeline.addLast(businessGroup, "LargeFrameHandler", new LargeFrameHandler());
+        }
+        pipeline.addLast(businessGroup, "MyServerHandler", new MyServerHandler());
     }
 }
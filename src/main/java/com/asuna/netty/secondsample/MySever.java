@@ -1,10 +1,12 @@
 package com.asuna.netty.secondsample;
 
+import com.asuna.netty.util.BusinessExecutors;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.EventExecutorGroup;
 
 public class MySever {
     public static void main(String[] args) {
@@ -13,13 +15,18 @@ public class MySever {
          *               workerGroup用于处理新来的连接的业务，并返回数据
          * 如果使用handler那么会针对于bossGroup进行处理
          * 使用childHandler会针对于workerGroup进行处理
+         * businessGroup用于执行业务处理器，业务慢的时候不会拖住workerGroup上的其它连接
          */
+        //启动参数是流式阈值，超过这个长度的帧边收边处理，不传表示不开启
+        int streamThreshold = args.length > 0 ? Integer.parseInt(args[0]) : 0;
         EventLoopGroup bossGroup = new NioEventLoopGroup();
         EventLoopGroup workerGroup = new NioEventLoopGroup();
+        EventExecutorGroup businessGroup = BusinessExecutors.newOrdered("business", 16, 10000);
         try {
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             serverBootstrap.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
-                    .childHandler(new MyServerInitializer());
+                    .childHandler(new MyServerInitializer(businessGroup,
+                            MyServerInitializer.DEFAULT_MAX_FRAME_LENGTH, streamThreshold));
             ChannelFuture channelFuture = serverBootstrap.bind(8899).sync();
             channelFuture.channel().closeFuture().sync();
         } catch (InterruptedException e) {
@@ -27,6 +34,7 @@ public class MySever {
         } finally {
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
+            businessGroup.shutdownGracefully();
         }
     }
 }
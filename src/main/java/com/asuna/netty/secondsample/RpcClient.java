@@ -0,0 +1,106 @@
+package com.asuna.netty.secondsample;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 多路复用的异步客户端：一个连接上可以同时有很多个请求，每个请求返回一个CompletableFuture
+ * 请求带关联ID，响应按ID匹配，不要求按顺序返回
+ * 超时用HashedWheelTimer，大量请求的定时任务只是放进时间轮的格子里，不占用I/O线程的定时任务队列
+ */
+public class RpcClient implements Closeable {
+    //所有客户端共用的时间轮，精度10ms就够了
+    private static final Timer DEFAULT_TIMER = new HashedWheelTimer(
+            new DefaultThreadFactory("rpc-timeout", true), 10, TimeUnit.MILLISECONDS);
+
+    private final Channel channel;
+    private final RpcClientHandler handler;
+    private final Timer timer;
+
+    private RpcClient(Channel channel, RpcClientHandler handler, Timer timer) {
+        this.channel = channel;
+        this.handler = handler;
+        this.timer = timer;
+    }
+
+    public static RpcClient connect(EventLoopGroup group, String host, int port) throws InterruptedException {
+        return connect(group, host, port, DEFAULT_TIMER);
+    }
+
+    public static RpcClient connect(EventLoopGroup group, String host, int port, Timer timer)
+            throws InterruptedException {
+        RpcClientHandler handler = new RpcClientHandler();
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(group).channel(NioSocketChannel.class).handler(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) throws Exception {
+                ChannelPipeline pipeline = ch.pipeline();
+                pipeline.addLast(new FlushConsolidationHandler(MyServerInitializer.EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+                pipeline.addLast(new StreamingFrameDecoder(MyServerInitializer.DEFAULT_MAX_FRAME_LENGTH));
+                pipeline.addLast(new RpcMessageCodec());
+                pipeline.addLast(handler);
+            }
+        });
+        Channel channel = bootstrap.connect(host, port).sync().channel();
+        return new RpcClient(channel, handler, timer);
+    }
+
+    /**
+     * 发送请求，超时后future以TimeoutException结束，之后到达的响应直接丢弃
+     */
+    public CompletableFuture<String> call(CharSequence request, long timeout, TimeUnit unit) {
+        CompletableFuture<String> future = new CompletableFuture<String>();
+        int id = handler.register(future);
+        Timeout timer = this.timer.newTimeout(t -> handler.fail(id,
+                new TimeoutException("rpc " + id + " timed out after " + unit.toMillis(timeout) + "ms")), timeout, unit);
+        future.whenComplete((result, cause) -> timer.cancel());
+        channel.writeAndFlush(new RpcMessage(id, request)).addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                handler.fail(id, f.cause());
+            }
+        });
+        return future;
+    }
+
+    public int pendingCount() {
+        return handler.pendingCount();
+    }
+
+    @Override
+    public void close() {
+        channel.close().syncUninterruptibly();
+    }
+
+    public static void main(String[] args) throws Exception {
+        EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+        try (RpcClient client = connect(eventLoopGroup, "localhost", 8899)) {
+            //同一个连接上同时发出1000个请求
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[1000];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = client.call("request " + i, 3, TimeUnit.SECONDS);
+            }
+            CompletableFuture.allOf(futures).join();
+            System.out.println(futures[0].get());
+            System.out.println(futures[futures.length - 1].get());
+        } finally {
+            eventLoopGroup.shutdownGracefully();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.asuna.netty.secondsample;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 保存还没有收到响应的请求，按响应里的id找到对应的future完成它
+ * 发请求的可以是任意线程，收响应在I/O线程，所以用ConcurrentHashMap，不需要加锁
+ */
+public class RpcClientHandler extends SimpleChannelInboundHandler<RpcMessage> {
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final ConcurrentMap<Integer, CompletableFuture<String>> pending =
+            new ConcurrentHashMap<Integer, CompletableFuture<String>>();
+
+    /**
+     * 登记一个新请求，返回分配的id
+     */
+    int register(CompletableFuture<String> future) {
+        int id = nextId.incrementAndGet();
+        pending.put(id, future);
+        return id;
+    }
+
+    /**
+     * 超时或者写失败时移除请求，返回false说明它已经完成了
+     */
+    boolean fail(int id, Throwable cause) {
+        CompletableFuture<String> future = pending.remove(id);
+        return future != null && future.completeExceptionally(cause);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, RpcMessage msg) throws Exception {
+        CompletableFuture<String> future = pending.remove(msg.id());
+        //已经超时的请求，响应直接丢掉
+        if (future != null) {
+            future.complete(msg.body().toString());
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        ClosedChannelException cause = new ClosedChannelException();
+        Iterator<CompletableFuture<String>> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            CompletableFuture<String> future = iterator.next();
+            iterator.remove();
+            future.completeExceptionally(cause);
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        cause.printStackTrace();
+        ctx.close();
+    }
+}
@@ -0,0 +1,28 @@
+package com.asuna.netty.secondsample;
+
+/**
+ * 带关联ID的请求或响应，响应的id和对应请求的id相同，一个连接上可以同时有很多个请求没有返回
+ * 帧格式：4字节长度（后面所有内容的长度） + 4字节id + UTF-8内容
+ */
+public final class RpcMessage {
+    private final int id;
+    private final CharSequence body;
+
+    public RpcMessage(int id, CharSequence body) {
+        this.id = id;
+        this.body = body;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public CharSequence body() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return "RpcMessage(" + id + ", " + body + ")";
+    }
+}
@@ -0,0 +1,38 @@
+package com.asuna.netty.secondsample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.util.CharsetUtil;
+
+import java.util.List;
+
+/**
+ * 放在StreamingFrameDecoder后面，帧和RpcMessage互相转换
+ * 编码时和TextFrameEncoder一样，长度字段先占位，写完内容再回填
+ */
+public class RpcMessageCodec extends MessageToMessageCodec<ByteBuf, RpcMessage> {
+    private static final int ID_LENGTH = 4;
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, RpcMessage msg, List<Object> out) throws Exception {
+        CharSequence body = msg.body();
+        ByteBuf buffer = ctx.alloc().ioBuffer(4 + ID_LENGTH + ByteBufUtil.utf8MaxBytes(body));
+        buffer.writeInt(0);
+        buffer.writeInt(msg.id());
+        int length = ByteBufUtil.writeUtf8(buffer, body);
+        buffer.setInt(0, ID_LENGTH + length);
+        out.add(buffer);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        if (msg.readableBytes() < ID_LENGTH) {
+            throw new CorruptedFrameException("rpc frame too short: " + msg.readableBytes());
+        }
+        int id = msg.readInt();
+        out.add(new RpcMessage(id, msg.toString(CharsetUtil.UTF_8)));
+    }
+}
@@ -0,0 +1,33 @@
+package com.asuna.netty.secondsample;
+
+import com.asuna.netty.util.BusinessExecutors;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+public class RpcServer {
+    public static void main(String[] args) {
+        /**
+         * 和MySever一样，只是协议换成带关联ID的RpcMessage，配合RpcClient使用
+         */
+        EventLoopGroup bossGroup = new NioEventLoopGroup();
+        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        EventExecutorGroup businessGroup = BusinessExecutors.newOrdered("business", 16, 10000);
+        try {
+            ServerBootstrap serverBootstrap = new ServerBootstrap();
+            serverBootstrap.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
+                    .childHandler(new RpcServerInitializer(businessGroup));
+            ChannelFuture channelFuture = serverBootstrap.bind(8899).sync();
+            channelFuture.channel().closeFuture().sync();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } finally {
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+            businessGroup.shutdownGracefully();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.asuna.netty.secondsample;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * 响应里带上请求的id，客户端靠它匹配请求
+ */
+public class RpcServerHandler extends SimpleChannelInboundHandler<RpcMessage> {
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, RpcMessage msg) throws Exception {
+        ctx.writeAndFlush(new RpcMessage(msg.id(), "from server: " + msg.body()));
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        cause.printStackTrace();
+        ctx.close();
+    }
+}
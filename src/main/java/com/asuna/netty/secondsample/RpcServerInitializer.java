@@ -0,0 +1,35 @@
+package com.asuna.netty.secondsample;
+
+import com.asuna.netty.util.BusinessBackpressureHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+public class RpcServerInitializer extends ChannelInitializer<SocketChannel> {
+    //RpcServerHandler所在的业务线程池，为null时直接在I/O线程上执行
+    private final EventExecutorGroup businessGroup;
+
+    public RpcServerInitializer(EventExecutorGroup businessGroup) {
+        this.businessGroup = businessGroup;
+    }
+
+    @Override
+    protected void initChannel(SocketChannel ch) throws Exception {
+        ChannelPipeline pipeline = ch.pipeline();
+        /**
+         * 和MyServerInitializer一样合并flush、出站缓冲满了暂停读、限制帧长度
+         * RpcMessageCodec：帧里的关联ID和内容与RpcMessage互相转换
+         * BusinessBackpressureHandler：业务线程的任务队列积压时暂停读
+         */
+        pipeline.addLast(new FlushConsolidationHandler(MyServerInitializer.EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+        pipeline.addLast(MyServerInitializer.BACKPRESSURE);
+        pipeline.addLast(new StreamingFrameDecoder(MyServerInitializer.DEFAULT_MAX_FRAME_LENGTH));
+        pipeline.addLast(new RpcMessageCodec());
+        if (businessGroup != null) {
+            pipeline.addLast(new BusinessBackpressureHandler("RpcServerHandler"));
+        }
+        pipeline.addLast(businessGroup, "RpcServerHandler", new RpcServerHandler());
+    }
+}
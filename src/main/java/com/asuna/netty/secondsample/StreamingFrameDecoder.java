@@ -0,0 +1,95 @@
+package com.asuna.netty.secondsample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.List;
+
+/**
+ * 4字节长度字段的帧解码器，代替LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4)
+ * 读到长度字段就检查maxFrameLength，超过的帧不等数据到齐，立即抛TooLongFrameException，后面收到的这一帧的数据直接丢弃
+ * streamThreshold大于0时，超过阈值的帧不在累积缓冲区里攒成一整块，而是收到多少就发出多少FrameChunk，
+ * 内存占用和帧的大小无关；不超过阈值的帧照常输出一个完整的ByteBuf
+ */
+public class StreamingFrameDecoder extends ByteToMessageDecoder {
+    private static final int LENGTH_FIELD_LENGTH = 4;
+
+    private final int maxFrameLength;
+    private final int streamThreshold;
+
+    //正在流式输出的帧的长度和剩余字节数
+    private int streamingFrameLength;
+    private int streamingRemaining;
+    //正在丢弃的超长帧剩余的字节数
+    private long discardRemaining;
+
+    public StreamingFrameDecoder(int maxFrameLength) {
+        this(maxFrameLength, 0);
+    }
+
+    /**
+     * @param maxFrameLength  允许的最大帧长度
+     * @param streamThreshold 超过这个长度的帧按FrameChunk流式输出，0表示不开启
+     */
+    public StreamingFrameDecoder(int maxFrameLength, int streamThreshold) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("maxFrameLength: " + maxFrameLength);
+        }
+        if (streamThreshold < 0) {
+            throw new IllegalArgumentException("streamThreshold: " + streamThreshold);
+        }
+        this.maxFrameLength = maxFrameLength;
+        this.streamThreshold = streamThreshold;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (discardRemaining > 0) {
+            int skip = (int) Math.min(discardRemaining, in.readableBytes());
+            in.skipBytes(skip);
+            discardRemaining -= skip;
+            return;
+        }
+        if (streamingRemaining > 0) {
+            int length = Math.min(streamingRemaining, in.readableBytes());
+            if (length > 0) {
+                streamingRemaining -= length;
+                out.add(new FrameChunk(in.readRetainedSlice(length), streamingFrameLength, streamingRemaining == 0));
+            }
+            return;
+        }
+        if (in.readableBytes() < LENGTH_FIELD_LENGTH) {
+            return;
+        }
+        long frameLength = in.getUnsignedInt(in.readerIndex());
+        if (frameLength > maxFrameLength) {
+            in.skipBytes(LENGTH_FIELD_LENGTH);
+            discardRemaining = frameLength;
+            throw new TooLongFrameException("frame length exceeds " + maxFrameLength + ": " + frameLength);
+        }
+        int length = (int) frameLength;
+        if (streamThreshold > 0 && length > streamThreshold) {
+            in.skipBytes(LENGTH_FIELD_LENGTH);
+            streamingFrameLength = length;
+            streamingRemaining = length;
+            return;
+        }
+        if (in.readableBytes() < LENGTH_FIELD_LENGTH + length) {
+            return;
+        }
+        in.skipBytes(LENGTH_FIELD_LENGTH);
+        out.add(in.readRetainedSlice(length));
+    }
+
+    @Override
+    protected void decodeLast(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        super.decodeLast(ctx, in, out);
+        if (streamingRemaining > 0) {
+            throw new CorruptedFrameException("connection closed with " + streamingRemaining
+                    + " bytes of a streamed frame missing");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.asuna.netty.secondsample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.util.CharsetUtil;
+
+/**
+ * 一帧文本消息，直接持有LengthFieldBasedFrameDecoder切出来的retainedSlice，不拷贝也不提前解码
+ * 帧内容是UTF-8；全是ASCII时（协议里的消息基本都是）一个字节就是一个字符，charAt直接读ByteBuf，
+ * 有非ASCII字符时第一次访问才解码成String
+ * 和其它ByteBufHolder一样用完要release，SimpleChannelInboundHandler会自动释放
+ */
+public final class TextFrame extends DefaultByteBufHolder implements CharSequence {
+    //0：还没检查，1：全是ASCII，-1：有非ASCII字符
+    private int ascii;
+    private String decoded;
+
+    public TextFrame(ByteBuf content) {
+        super(content);
+    }
+
+    @Override
+    public int length() {
+        return isAscii() ? content().readableBytes() : decoded().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (isAscii()) {
+            ByteBuf content = content();
+            if (index < 0 || index >= content.readableBytes()) {
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + content.readableBytes());
+            }
+            return (char) content.getByte(content.readerIndex() + index);
+        }
+        return decoded().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return isAscii() ? content().toString(CharsetUtil.US_ASCII) : decoded();
+    }
+
+    public boolean isAscii() {
+        if (ascii == 0) {
+            ByteBuf content = content();
+            //forEachByte遇到第一个负数（最高位为1）就停下来
+            ascii = content.forEachByte(value -> value >= 0) < 0 ? 1 : -1;
+        }
+        return ascii > 0;
+    }
+
+    private String decoded() {
+        if (decoded == null) {
+            decoded = content().toString(CharsetUtil.UTF_8);
+        }
+        return decoded;
+    }
+
+    @Override
+    public TextFrame replace(ByteBuf content) {
+        return new TextFrame(content);
+    }
+
+    @Override
+    public TextFrame retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public TextFrame retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public TextFrame touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public TextFrame touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+}
@@ -0,0 +1,18 @@
+package com.asuna.netty.secondsample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+
+import java.util.List;
+
+/**
+ * 放在LengthFieldBasedFrameDecoder后面，把切好的帧包装成TextFrame，代替StringDecoder
+ * 帧本身就是累积缓冲区的retainedSlice，这里只增加引用计数，没有拷贝
+ */
+public class TextFrameDecoder extends MessageToMessageDecoder<ByteBuf> {
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        out.add(new TextFrame(msg.retain()));
+    }
+}
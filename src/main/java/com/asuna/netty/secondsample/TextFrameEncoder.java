@@ -0,0 +1,70 @@
+package com.asuna.netty.secondsample;
+
+import com.asuna.netty.util.Crc32c;
+import com.asuna.netty.util.Crc32cTrailerDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.AsciiString;
+
+/**
+ * 代替LengthFieldPrepender + StringEncoder
+ * 字符直接按UTF-8写进出站的ByteBuf，4字节的长度先占位，写完内容后再填回去，
+ * 不经过CharBuffer，也不需要再单独拼一个长度字段
+ * 开启checksum时内容后面再写4字节的CRC32C，直接在出站缓冲区上算，长度字段把它也算进去
+ */
+public class TextFrameEncoder extends MessageToByteEncoder<CharSequence> {
+    private static final int LENGTH_FIELD_LENGTH = 4;
+
+    private final boolean checksum;
+
+    public TextFrameEncoder() {
+        this(false);
+    }
+
+    public TextFrameEncoder(boolean checksum) {
+        this.checksum = checksum;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, CharSequence msg, ByteBuf out) throws Exception {
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        int length;
+        if (msg instanceof TextFrame) {
+            //收到的帧原样转发，直接拷贝字节
+            ByteBuf content = ((TextFrame) msg).content();
+            length = content.readableBytes();
+            out.writeBytes(content, content.readerIndex(), length);
+        } else if (msg instanceof AsciiString) {
+            length = msg.length();
+            ByteBufUtil.copy((AsciiString) msg, out);
+        } else {
+            length = ByteBufUtil.writeUtf8(out, msg);
+        }
+        if (checksum) {
+            out.writeInt(Crc32c.compute(out, lengthIndex + LENGTH_FIELD_LENGTH, length));
+            length += Crc32cTrailerDecoder.TRAILER_LENGTH;
+        }
+        out.setInt(lengthIndex, length);
+    }
+
+    /**
+     * 按最大可能长度一次分配好，写的时候不用扩容
+     */
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, CharSequence msg, boolean preferDirect)
+            throws Exception {
+        int maxLength;
+        if (msg instanceof TextFrame) {
+            maxLength = ((TextFrame) msg).content().readableBytes();
+        } else if (msg instanceof AsciiString) {
+            maxLength = msg.length();
+        } else {
+            maxLength = ByteBufUtil.utf8MaxBytes(msg);
+        }
+        int capacity = LENGTH_FIELD_LENGTH + maxLength + (checksum ? Crc32cTrailerDecoder.TRAILER_LENGTH : 0);
+        return preferDirect ? ctx.alloc().ioBuffer(capacity) : ctx.alloc().heapBuffer(capacity);
+    }
+}
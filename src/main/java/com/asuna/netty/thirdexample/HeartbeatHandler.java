@@ -0,0 +1,96 @@
+package com.asuna.netty.thirdexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+
+/**
+ * 应用层心跳，放在LengthFieldBasedFrameDecoder(..., 0, 4, 0, 4)和空闲检测处理器后面
+ * 帧格式：4字节长度 + 1字节类型 + 内容，类型是PING、PONG或者DATA
+ * 读空闲时发一个PING，对端收到后马上回PONG，任何数据都会让读空闲重新计时；
+ * 连续maxMisses次读空闲都没有收到任何数据，说明连接已经死了（比如半开的TCP连接），直接关闭，释放缓冲区和文件描述符
+ * 后面的处理器收发的都是DATA帧的内容，不用关心心跳
+ */
+public class HeartbeatHandler extends ChannelDuplexHandler {
+    static final byte PING = 1;
+    static final byte PONG = 2;
+    static final byte DATA = 3;
+
+    private static final ByteBuf PING_FRAME = frame(PING);
+    private static final ByteBuf PONG_FRAME = frame(PONG);
+
+    private final int maxMisses;
+    //连续没有回应的心跳数
+    private int misses;
+
+    public HeartbeatHandler(int maxMisses) {
+        this.maxMisses = maxMisses;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof ByteBuf)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        ByteBuf frame = (ByteBuf) msg;
+        try {
+            if (!frame.isReadable()) {
+                throw new CorruptedFrameException("empty frame");
+            }
+            byte type = frame.readByte();
+            switch (type) {
+                case PING:
+                    ctx.writeAndFlush(PONG_FRAME.duplicate());
+                    break;
+                case PONG:
+                    break;
+                case DATA:
+                    ctx.fireChannelRead(frame.retain());
+                    break;
+                default:
+                    throw new CorruptedFrameException("unknown frame type: " + type);
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!(msg instanceof ByteBuf)) {
+            ctx.write(msg, promise);
+            return;
+        }
+        ByteBuf data = (ByteBuf) msg;
+        ByteBuf header = ctx.alloc().ioBuffer(5);
+        header.writeInt(1 + data.readableBytes()).writeByte(DATA);
+        ctx.write(header, ctx.voidPromise());
+        ctx.write(data, promise);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent && ((IdleStateEvent) evt).state() == IdleState.READER_IDLE) {
+            //第一次读空闲说明中间收到过数据，重新计数
+            misses = ((IdleStateEvent) evt).isFirst() ? 1 : misses + 1;
+            if (misses > maxMisses) {
+                System.out.println(ctx.channel().remoteAddress() + "-连续" + maxMisses + "次心跳没有回应，关闭连接");
+                ctx.close();
+                return;
+            }
+            ctx.writeAndFlush(PING_FRAME.duplicate());
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    private static ByteBuf frame(byte type) {
+        ByteBuf frame = Unpooled.directBuffer(5).writeInt(1).writeByte(type);
+        return Unpooled.unreleasableBuffer(frame.asReadOnly());
+    }
+}
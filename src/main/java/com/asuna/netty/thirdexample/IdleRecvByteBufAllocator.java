@@ -0,0 +1,115 @@
+package com.asuna.netty.thirdexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.util.UncheckedBooleanSupplier;
+
+/**
+ * 包装AdaptiveRecvByteBufAllocator，连接空闲后下一次读只分配很小的接收缓冲区
+ * Adaptive会记住最近一次的大小（最大64K），空闲很久的连接醒来通常只收到一个心跳，没必要再按之前的大小分配；
+ * 这一轮读完之后恢复原来的策略，数据多的话Adaptive会很快重新涨上去
+ * 用法：childOption(ChannelOption.RCVBUF_ALLOCATOR, new IdleRecvByteBufAllocator())，
+ * 空闲时调用IdleRecvByteBufAllocator.idle(channel)
+ * 只使用ExtendedHandle，不出现已经废弃的Handle类型；Netty自带的分配器的Handle都实现了ExtendedHandle
+ */
+public class IdleRecvByteBufAllocator implements RecvByteBufAllocator {
+    private static final int DEFAULT_IDLE_GUESS = 64;
+
+    private final RecvByteBufAllocator delegate;
+    private final int idleGuess;
+
+    public IdleRecvByteBufAllocator() {
+        this(new AdaptiveRecvByteBufAllocator(), DEFAULT_IDLE_GUESS);
+    }
+
+    public IdleRecvByteBufAllocator(RecvByteBufAllocator delegate, int idleGuess) {
+        this.delegate = delegate;
+        this.idleGuess = idleGuess;
+    }
+
+    @Override
+    public ExtendedHandle newHandle() {
+        return new IdleHandle((ExtendedHandle) delegate.newHandle(), idleGuess);
+    }
+
+    /**
+     * 标记连接已经空闲，没有使用这个分配器的连接忽略，必须在EventLoop线程上调用
+     */
+    public static void idle(Channel channel) {
+        Object handle = channel.unsafe().recvBufAllocHandle();
+        if (handle instanceof IdleHandle) {
+            ((IdleHandle) handle).idle = true;
+        }
+    }
+
+    private static final class IdleHandle implements ExtendedHandle {
+        private final ExtendedHandle delegate;
+        private final int idleGuess;
+        private boolean idle;
+
+        private IdleHandle(ExtendedHandle delegate, int idleGuess) {
+            this.delegate = delegate;
+            this.idleGuess = idleGuess;
+        }
+
+        @Override
+        public ByteBuf allocate(ByteBufAllocator alloc) {
+            return idle ? alloc.ioBuffer(idleGuess) : delegate.allocate(alloc);
+        }
+
+        @Override
+        public int guess() {
+            return idle ? idleGuess : delegate.guess();
+        }
+
+        @Override
+        public void reset(ChannelConfig config) {
+            delegate.reset(config);
+        }
+
+        @Override
+        public void incMessagesRead(int numMessages) {
+            delegate.incMessagesRead(numMessages);
+        }
+
+        @Override
+        public void lastBytesRead(int bytes) {
+            delegate.lastBytesRead(bytes);
+        }
+
+        @Override
+        public int lastBytesRead() {
+            return delegate.lastBytesRead();
+        }
+
+        @Override
+        public void attemptedBytesRead(int bytes) {
+            delegate.attemptedBytesRead(bytes);
+        }
+
+        @Override
+        public int attemptedBytesRead() {
+            return delegate.attemptedBytesRead();
+        }
+
+        @Override
+        public boolean continueReading() {
+            return delegate.continueReading();
+        }
+
+        @Override
+        public boolean continueReading(UncheckedBooleanSupplier maybeMoreDataSupplier) {
+            return delegate.continueReading(maybeMoreDataSupplier);
+        }
+
+        @Override
+        public void readComplete() {
+            delegate.readComplete();
+            idle = false;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.asuna.netty.thirdexample;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个EventLoop一个的时间轮，负责这个EventLoop上所有WheelIdleStateHandler的空闲检测
+ * 整个EventLoop只有一个周期任务，每个tick处理一个格子里的连接；连接按下一次可能超时的时间放进对应的格子，
+ * 不再是每个连接三个定时任务挤在EventLoop的定时任务优先队列里
+ * 时间轮只在自己的EventLoop线程上访问，不需要同步；链表指针直接放在处理器里，不额外创建节点对象
+ * 读写时只更新处理器里的时间戳，时间戳用的是时间轮每个tick缓存下来的当前时间，不调用System.nanoTime()
+ */
+final class IdleTimeWheel {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    //必须是2的幂，100ms * 1024大约覆盖100秒，更远的超时在格子里转一圈后重新放
+    private static final int WHEEL_SIZE = 1024;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private static final FastThreadLocal<IdleTimeWheel> WHEELS = new FastThreadLocal<IdleTimeWheel>();
+
+    private final EventLoop eventLoop;
+    private final WheelIdleStateHandler[] buckets = new WheelIdleStateHandler[WHEEL_SIZE];
+    //处理一个格子时先把里面的连接取出来，复用这个列表
+    private final ArrayList<WheelIdleStateHandler> expiring = new ArrayList<WheelIdleStateHandler>();
+    private int cursor;
+    private int size;
+    private long now;
+    private ScheduledFuture<?> tickFuture;
+
+    private IdleTimeWheel(EventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+        this.now = System.nanoTime();
+    }
+
+    /**
+     * 当前EventLoop的时间轮，必须在EventLoop线程上调用
+     */
+    static IdleTimeWheel current(EventLoop eventLoop) {
+        assert eventLoop.inEventLoop();
+        IdleTimeWheel wheel = WHEELS.get();
+        if (wheel == null) {
+            wheel = new IdleTimeWheel(eventLoop);
+            WHEELS.set(wheel);
+        }
+        return wheel;
+    }
+
+    /**
+     * 最近一个tick的时间，精度是一个tick
+     */
+    long now() {
+        return now;
+    }
+
+    void add(WheelIdleStateHandler handler) {
+        if (size++ == 0) {
+            now = System.nanoTime();
+            tickFuture = eventLoop.scheduleAtFixedRate(this::tick, TICK_NANOS, TICK_NANOS, TimeUnit.NANOSECONDS);
+        }
+        handler.deadline = handler.reset(now);
+        link(handler);
+    }
+
+    void remove(WheelIdleStateHandler handler) {
+        unlink(handler);
+        if (--size == 0) {
+            tickFuture.cancel(false);
+            tickFuture = null;
+        }
+    }
+
+    private void tick() {
+        now = System.nanoTime();
+        cursor = (cursor + 1) & MASK;
+        WheelIdleStateHandler handler = buckets[cursor];
+        while (handler != null) {
+            WheelIdleStateHandler next = handler.next;
+            handler.prev = handler.next = null;
+            handler.bucket = -1;
+            expiring.add(handler);
+            handler = next;
+        }
+        buckets[cursor] = null;
+        try {
+            for (int i = 0; i < expiring.size(); i++) {
+                handler = expiring.get(i);
+                //前面的处理器触发事件时可能关掉了这个连接
+                if (!handler.tracking) {
+                    continue;
+                }
+                if (handler.deadline - now > 0) {
+                    //超时时间超过一圈，还没到
+                    link(handler);
+                } else {
+                    handler.deadline = handler.expire(now);
+                    if (handler.tracking && handler.bucket < 0) {
+                        link(handler);
+                    }
+                }
+            }
+        } finally {
+            expiring.clear();
+        }
+    }
+
+    private void link(WheelIdleStateHandler handler) {
+        long ticks = (handler.deadline - now + TICK_NANOS - 1) / TICK_NANOS;
+        int bucket = (int) ((cursor + Math.min(Math.max(ticks, 1), WHEEL_SIZE - 1)) & MASK);
+        WheelIdleStateHandler head = buckets[bucket];
+        handler.next = head;
+        if (head != null) {
+            head.prev = handler;
+        }
+        buckets[bucket] = handler;
+        handler.bucket = bucket;
+    }
+
+    private void unlink(WheelIdleStateHandler handler) {
+        if (handler.bucket < 0) {
+            return;
+        }
+        if (handler.prev != null) {
+            handler.prev.next = handler.next;
+        } else {
+            buckets[handler.bucket] = handler.next;
+        }
+        if (handler.next != null) {
+            handler.next.prev = handler.prev;
+        }
+        handler.prev = handler.next = null;
+        handler.bucket = -1;
+    }
+}
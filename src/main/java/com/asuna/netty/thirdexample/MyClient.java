@@ -0,0 +1,93 @@
+package com.asuna.netty.thirdexample;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带心跳和自动重连的客户端
+ * 连接断开或者连不上时按指数退避重连，每次在[0, min(上限, 初始间隔 * 2^失败次数))里随机取一个时间，
+ * 避免服务器重启后所有客户端在同一时刻一起重连
+ */
+public class MyClient {
+    private static final long BASE_DELAY_MILLIS = 100;
+    private static final long MAX_DELAY_MILLIS = 30000;
+    //读空闲10秒发一次心跳，连续3次没有回应就断开重连
+    private static final int READER_IDLE_SECONDS = 10;
+    private static final int MAX_MISSES = 3;
+
+    //所有连接和重连任务都固定在同一个EventLoop上，attempts只会被这一个线程访问
+    private final EventLoop loop;
+    private final Bootstrap bootstrap = new Bootstrap();
+    //连续失败的次数，只在loop线程上访问
+    private int attempts;
+    private volatile boolean closed;
+
+    public MyClient(EventLoopGroup group, String host, int port) {
+        this.loop = group.next();
+        ReconnectHandler reconnectHandler = new ReconnectHandler(this);
+        bootstrap.group(loop).channel(NioSocketChannel.class).remoteAddress(host, port)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) throws Exception {
+                        ChannelPipeline pipeline = ch.pipeline();
+                        pipeline.addLast(reconnectHandler);
+                        pipeline.addLast(new WheelIdleStateHandler(READER_IDLE_SECONDS, 0, 0, TimeUnit.SECONDS));
+                        pipeline.addLast(new ReclaimingFrameDecoder(MyServerInitializer.MAX_FRAME_LENGTH,
+                                0, 4, 0, 4));
+                        pipeline.addLast(new HeartbeatHandler(MAX_MISSES));
+                    }
+                });
+    }
+
+    public void connect() {
+        if (closed) {
+            return;
+        }
+        bootstrap.connect().addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                System.out.println("连接失败：" + future.cause());
+                scheduleReconnect();
+            }
+        });
+    }
+
+    void connected() {
+        attempts = 0;
+    }
+
+    void scheduleReconnect() {
+        if (closed) {
+            return;
+        }
+        long cap = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << Math.min(attempts, 20));
+        long delay = ThreadLocalRandom.current().nextLong(cap);
+        attempts++;
+        System.out.println(delay + "ms后重连");
+        loop.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        closed = true;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+        try {
+            MyClient client = new MyClient(eventLoopGroup, "localhost", 8899);
+            client.connect();
+            eventLoopGroup.terminationFuture().sync();
+        } finally {
+            eventLoopGroup.shutdownGracefully();
+        }
+    }
+}
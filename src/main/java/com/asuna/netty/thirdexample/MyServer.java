@@ -1,8 +1,8 @@
 package com.asuna.netty.thirdexample;
 
-import com.asuna.netty.secondsample.MyServerInitializer;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
@@ -23,7 +23,9 @@ public class MyServer {
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             serverBootstrap.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
                     .handler(new LoggingHandler(LogLevel.INFO))
-                    .childHandler(new MyServerInitializer());
+                    .childHandler(new MyServerInitializer())
+                    //空闲连接醒来后的第一次读只分配很小的接收缓冲区
+                    .childOption(ChannelOption.RCVBUF_ALLOCATOR, new IdleRecvByteBufAllocator());
             ChannelFuture channelFuture = serverBootstrap.bind(8899).sync();
             channelFuture.channel().closeFuture().sync();
         } catch (InterruptedException e) {
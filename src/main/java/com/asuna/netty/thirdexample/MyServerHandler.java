@@ -2,6 +2,7 @@ package com.asuna.netty.thirdexample;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 
 public class MyServerHandler extends ChannelInboundHandlerAdapter {
@@ -22,6 +23,13 @@ public class MyServerHandler extends ChannelInboundHandlerAdapter {
                     break;
             }
             System.out.println(ctx.channel().remoteAddress() + "-超时事件" + eventType);
+            /**
+             * 读空闲和读写空闲时把连接的内存占用降到最低：
+             * 累积缓冲区由前面的ReclaimingFrameDecoder收缩，这里让下一次读只分配很小的接收缓冲区，读完后自动恢复
+             */
+            if (event.state() != IdleState.WRITER_IDLE) {
+                IdleRecvByteBufAllocator.idle(ctx.channel());
+            }
         }
     }
 }
@@ -3,17 +3,22 @@ package com.asuna.netty.thirdexample;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.timeout.IdleStateHandler;
 
 import java.util.concurrent.TimeUnit;
 
 public class MyServerInitializer extends ChannelInitializer<SocketChannel> {
+    static final int MAX_FRAME_LENGTH = 1024 * 1024;
+    //连续3次读空闲都没有收到数据就关闭连接
+    private static final int MAX_MISSES = 3;
 
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
-        //netty自带的读写空闲处理器
-        pipeline.addLast(new IdleStateHandler(5,7,10, TimeUnit.SECONDS));
+        //读写空闲处理器，事件和netty自带的IdleStateHandler一样，但由每个EventLoop共享的时间轮统一检测
+        pipeline.addLast(new WheelIdleStateHandler(5,7,10, TimeUnit.SECONDS));
+        //心跳帧的拆包、应答，以及踢掉没有回应的连接；拆包器在空闲时收缩累积缓冲区
+        pipeline.addLast(new ReclaimingFrameDecoder(MAX_FRAME_LENGTH, 0, 4, 0, 4));
+        pipeline.addLast(new HeartbeatHandler(MAX_MISSES));
         pipeline.addLast(new MyServerHandler());
     }
 }
@@ -0,0 +1,39 @@
+package com.asuna.netty.thirdexample;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+
+/**
+ * 空闲时收缩累积缓冲区的LengthFieldBasedFrameDecoder
+ * 累积缓冲区里没有数据时ByteToMessageDecoder本来就会释放它；但如果对端发了半帧就不动了，
+ * 累积缓冲区通常就是那次读分配的接收缓冲区（可能有64K），这里在读空闲/读写空闲时把它缩到刚好放下剩下的数据
+ * 下游还持有切出来的帧（引用计数不为1）时不能移动数据，这次就不处理
+ */
+public class ReclaimingFrameDecoder extends LengthFieldBasedFrameDecoder {
+
+    public ReclaimingFrameDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength,
+                                  int lengthAdjustment, int initialBytesToStrip) {
+        super(maxFrameLength, lengthFieldOffset, lengthFieldLength, lengthAdjustment, initialBytesToStrip);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent && ((IdleStateEvent) evt).state() != IdleState.WRITER_IDLE) {
+            reclaim();
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    private void reclaim() {
+        ByteBuf cumulation = internalBuffer();
+        int readable = cumulation.readableBytes();
+        if (readable == 0 || cumulation.refCnt() != 1 || cumulation.isReadOnly() || cumulation.capacity() == readable) {
+            return;
+        }
+        cumulation.discardReadBytes();
+        cumulation.capacity(readable);
+    }
+}
@@ -0,0 +1,30 @@
+package com.asuna.netty.thirdexample;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+/**
+ * 连接断开后通知MyClient重连，连上以后重置退避
+ * 放在客户端管道的最前面，同一个客户端的所有连接共用
+ */
+@ChannelHandler.Sharable
+public class ReconnectHandler extends ChannelInboundHandlerAdapter {
+    private final MyClient client;
+
+    public ReconnectHandler(MyClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        client.connected();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        client.scheduleReconnect();
+        super.channelInactive(ctx);
+    }
+}
@@ -0,0 +1,183 @@
+package com.asuna.netty.thirdexample;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.timeout.IdleStateEvent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用法和IdleStateHandler一样，触发的也是同样的IdleStateEvent，但是不给每个连接创建定时任务，
+ * 而是交给所在EventLoop共享的IdleTimeWheel统一检查，适合大量长时间空闲的连接
+ * 读空闲按收到数据计算，写空闲按flush计算；检测精度是时间轮的一个tick（100ms）
+ */
+public class WheelIdleStateHandler extends ChannelDuplexHandler {
+    private final long readerIdleNanos;
+    private final long writerIdleNanos;
+    private final long allIdleNanos;
+
+    private ChannelHandlerContext ctx;
+    private IdleTimeWheel wheel;
+    private long lastRead;
+    private long lastWrite;
+    //三种空闲下一次触发的时间，只在时间轮检查时更新
+    private long readerDeadline;
+    private long writerDeadline;
+    private long allDeadline;
+    private boolean firstReaderIdle = true;
+    private boolean firstWriterIdle = true;
+    private boolean firstAllIdle = true;
+
+    //以下字段由IdleTimeWheel维护
+    boolean tracking;
+    long deadline;
+    int bucket = -1;
+    WheelIdleStateHandler prev;
+    WheelIdleStateHandler next;
+
+    /**
+     * 参数为0表示不检测这种空闲
+     */
+    public WheelIdleStateHandler(long readerIdleTime, long writerIdleTime, long allIdleTime, TimeUnit unit) {
+        this.readerIdleNanos = Math.max(0, unit.toNanos(readerIdleTime));
+        this.writerIdleNanos = Math.max(0, unit.toNanos(writerIdleTime));
+        this.allIdleNanos = Math.max(0, unit.toNanos(allIdleTime));
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isActive() && ctx.channel().isRegistered()) {
+            start(ctx);
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        stop();
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        start(ctx);
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        stop();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (tracking) {
+            lastRead = wheel.now();
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (tracking) {
+            lastWrite = wheel.now();
+        }
+        ctx.flush();
+    }
+
+    private void start(ChannelHandlerContext ctx) {
+        if (tracking || (readerIdleNanos == 0 && writerIdleNanos == 0 && allIdleNanos == 0)) {
+            return;
+        }
+        this.ctx = ctx;
+        wheel = IdleTimeWheel.current(ctx.channel().eventLoop());
+        tracking = true;
+        wheel.add(this);
+    }
+
+    /**
+     * 加入时间轮时调用，从now开始计时，返回第一次需要检查的时间
+     */
+    long reset(long now) {
+        lastRead = lastWrite = now;
+        readerDeadline = now + readerIdleNanos;
+        writerDeadline = now + writerIdleNanos;
+        allDeadline = now + allIdleNanos;
+        firstReaderIdle = firstWriterIdle = firstAllIdle = true;
+        return nextDeadline();
+    }
+
+    private void stop() {
+        if (tracking) {
+            tracking = false;
+            wheel.remove(this);
+        }
+    }
+
+    /**
+     * 时间轮到了deadline时调用，触发该触发的事件，返回下一次需要检查的时间
+     * 时间戳是按tick缓存的，触发事件之后同一个tick里收到的数据时间戳和触发时间相同，所以比较时包含相等
+     */
+    long expire(long now) {
+        if (readerIdleNanos > 0) {
+            if (lastRead + readerIdleNanos - readerDeadline >= 0) {
+                readerDeadline = lastRead + readerIdleNanos;
+                firstReaderIdle = true;
+            }
+            if (readerDeadline - now <= 0) {
+                readerDeadline = now + readerIdleNanos;
+                fire(firstReaderIdle ? IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT
+                        : IdleStateEvent.READER_IDLE_STATE_EVENT);
+                firstReaderIdle = false;
+            }
+        }
+        if (writerIdleNanos > 0) {
+            if (lastWrite + writerIdleNanos - writerDeadline >= 0) {
+                writerDeadline = lastWrite + writerIdleNanos;
+                firstWriterIdle = true;
+            }
+            if (writerDeadline - now <= 0) {
+                writerDeadline = now + writerIdleNanos;
+                fire(firstWriterIdle ? IdleStateEvent.FIRST_WRITER_IDLE_STATE_EVENT
+                        : IdleStateEvent.WRITER_IDLE_STATE_EVENT);
+                firstWriterIdle = false;
+            }
+        }
+        if (allIdleNanos > 0) {
+            long lastActivity = lastRead - lastWrite > 0 ? lastRead : lastWrite;
+            if (lastActivity + allIdleNanos - allDeadline >= 0) {
+                allDeadline = lastActivity + allIdleNanos;
+                firstAllIdle = true;
+            }
+            if (allDeadline - now <= 0) {
+                allDeadline = now + allIdleNanos;
+                fire(firstAllIdle ? IdleStateEvent.FIRST_ALL_IDLE_STATE_EVENT
+                        : IdleStateEvent.ALL_IDLE_STATE_EVENT);
+                firstAllIdle = false;
+            }
+        }
+        return nextDeadline();
+    }
+
+    private long nextDeadline() {
+        long next = 0;
+        boolean found = false;
+        if (readerIdleNanos > 0) {
+            next = readerDeadline;
+            found = true;
+        }
+        if (writerIdleNanos > 0 && (!found || writerDeadline - next < 0)) {
+            next = writerDeadline;
+            found = true;
+        }
+        if (allIdleNanos > 0 && (!found || allDeadline - next < 0)) {
+            next = allDeadline;
+        }
+        return next;
+    }
+
+    private void fire(IdleStateEvent event) {
+        if (tracking) {
+            ctx.fireUserEventTriggered(event);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.asuna.netty.util;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.WriteBufferWaterMark;
+
+/**
+ * 出站缓冲超过高水位时暂停读，降到低水位以下再恢复
+ * 不再读对端的请求，也就不会再产生新的响应，出站队列不会无限增长，对端的发送也会被TCP窗口挡住
+ * 暂停的状态记在Channel上（见ReadSuspension），处理器本身没有状态，可以在所有连接之间共享
+ */
+@ChannelHandler.Sharable
+public class BackpressureHandler extends ChannelInboundHandlerAdapter {
+    private final WriteBufferWaterMark waterMark;
+
+    public BackpressureHandler(WriteBufferWaterMark waterMark) {
+        this.waterMark = waterMark;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        ctx.channel().config().setWriteBufferWaterMark(waterMark);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        //业务线程积压时可能也在暂停读，只清掉自己的原因
+        Channel channel = ctx.channel();
+        if (channel.isWritable()) {
+            ReadSuspension.resume(channel, ReadSuspension.UNWRITABLE);
+        } else {
+            ReadSuspension.suspend(channel, ReadSuspension.UNWRITABLE);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+}
@@ -0,0 +1,104 @@
+package com.asuna.netty.util;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业务线程的任务队列积压时暂停读，放在第一个业务处理器前面，留在I/O线程上
+ * 每读到一条消息看一下业务线程排队的任务数，达到maxPendingTasks就关掉autoRead，
+ * 再往业务线程提交一个恢复读的任务：它排在积压的任务后面，执行的时候前面的消息都已经处理完了
+ * 业务线程被其它连接占满、消息还是被拒绝时，释放消息并关闭连接，丢了一个请求后连接上的协议状态已经不对了
+ * 有状态，每个连接一个实例
+ */
+public class BusinessBackpressureHandler extends ChannelInboundHandlerAdapter {
+    //服务端的业务线程池队列上限是10000，留出足够的余量给已经读进来、还在解码的消息
+    public static final int DEFAULT_MAX_PENDING_TASKS = 1000;
+    //恢复读的任务也提交不进去时，隔一会儿在I/O线程上恢复，下一次读的时候再检查
+    private static final long RESUME_RETRY_MILLIS = 10;
+
+    private final String businessHandlerName;
+    private final int maxPendingTasks;
+
+    private ChannelHandlerContext ctx;
+    //业务处理器所在的线程，第一次读的时候才能确定，不是SingleThreadEventExecutor时为null
+    private SingleThreadEventExecutor executor;
+    private boolean resolved;
+    //已经暂停读，恢复任务还没有执行
+    private boolean paused;
+
+    private final Runnable resume = new Runnable() {
+        @Override
+        public void run() {
+            if (!ctx.executor().inEventLoop()) {
+                ctx.executor().execute(this);
+                return;
+            }
+            paused = false;
+            //出站缓冲还满着的话继续暂停，等BackpressureHandler恢复
+            ReadSuspension.resume(ctx.channel(), ReadSuspension.BUSINESS_BACKLOG);
+        }
+    };
+
+    public BusinessBackpressureHandler(String businessHandlerName) {
+        this(businessHandlerName, DEFAULT_MAX_PENDING_TASKS);
+    }
+
+    /**
+     * @param businessHandlerName 第一个放在业务线程池上的处理器的名字
+     * @param maxPendingTasks     业务线程排队的任务达到这个数就暂停读，要比线程池的队列上限小
+     */
+    public BusinessBackpressureHandler(String businessHandlerName, int maxPendingTasks) {
+        this.businessHandlerName = businessHandlerName;
+        this.maxPendingTasks = maxPendingTasks;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!resolved) {
+            resolve(ctx);
+        }
+        if (executor != null && !paused && executor.pendingTasks() >= maxPendingTasks) {
+            pause(ctx);
+        }
+        try {
+            ctx.fireChannelRead(msg);
+        } catch (RejectedExecutionException e) {
+            //任务没有提交进去，消息还没有被任何处理器接手
+            ReferenceCountUtil.release(msg);
+            ctx.close();
+        }
+    }
+
+    private void resolve(ChannelHandlerContext ctx) {
+        resolved = true;
+        ChannelHandlerContext business = ctx.pipeline().context(businessHandlerName);
+        if (business == null) {
+            return;
+        }
+        EventExecutor businessExecutor = business.executor();
+        if (businessExecutor != ctx.executor() && businessExecutor instanceof SingleThreadEventExecutor) {
+            executor = (SingleThreadEventExecutor) businessExecutor;
+        }
+    }
+
+    private void pause(ChannelHandlerContext ctx) {
+        paused = true;
+        ReadSuspension.suspend(ctx.channel(), ReadSuspension.BUSINESS_BACKLOG);
+        try {
+            executor.execute(resume);
+        } catch (RejectedExecutionException e) {
+            ctx.executor().schedule(resume, RESUME_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.asuna.netty.util;
+
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.concurrent.UnorderedThreadPoolEventExecutor;
+
+/**
+ * 业务线程池，用pipeline.addLast(group, handler)把会阻塞的处理器从I/O线程上挪走，
+ * 一个慢的数据库调用不会卡住同一个EventLoop上的其它连接
+ *
+ * 有序：DefaultEventExecutorGroup把每个Channel固定绑定到其中一个线程，同一个连接的事件按顺序执行，
+ *      处理器里可以像在I/O线程上一样保存连接状态；每个线程的任务队列有上限
+ * 无序：UnorderedThreadPoolEventExecutor里同一个连接的事件可能并发执行，只能用于没有状态的处理器
+ */
+public final class BusinessExecutors {
+    private BusinessExecutors() {
+    }
+
+    /**
+     * 队列满了直接拒绝，不在I/O线程上等待；放满之前应该由BusinessBackpressureHandler暂停读
+     *
+     * @param name            线程名前缀
+     * @param threads         线程数
+     * @param maxPendingTasks 每个线程最多排队的任务数
+     */
+    public static EventExecutorGroup newOrdered(String name, int threads, int maxPendingTasks) {
+        return new DefaultEventExecutorGroup(threads, new DefaultThreadFactory(name), maxPendingTasks,
+                RejectedExecutionHandlers.reject());
+    }
+
+    public static EventExecutorGroup newUnordered(String name, int threads) {
+        return new UnorderedThreadPoolEventExecutor(threads, new DefaultThreadFactory(name));
+    }
+}
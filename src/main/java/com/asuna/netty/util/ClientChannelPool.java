@@ -0,0 +1,166 @@
+package com.asuna.netty.util;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.EventLoop;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端连接池，每个EventLoop一个FixedChannelPool，池里的连接都注册在对应的EventLoop上
+ * 在EventLoop线程里acquire时直接用本线程的池，拿到的连接和调用方在同一个线程，读写不用切换线程；
+ * 其它线程优先使用借出连接最少的池
+ * 借出时检查连接是否还活着（ChannelHealthChecker.ACTIVE），归还时也检查，坏掉的连接直接关闭；
+ * 连接数达到上限后，acquire按先来先得排队，超过acquireTimeoutMillis还没拿到就失败
+ * 创建时为每个池预先建好最小连接数，避免第一批请求都要等建连；预热期间这些连接是借出状态，
+ * 调用方应该先等warmUpFuture()完成再acquire，否则会多建连接
+ * 最大连接数比EventLoop少时，只在前maxConnections个EventLoop上建池，总连接数不会超过maxConnections
+ */
+public class ClientChannelPool implements Closeable {
+    //每个EventLoop上最多排队等待的acquire数
+    private static final int MAX_PENDING_ACQUIRES = 1024;
+
+    private final EventLoop[] loops;
+    private final FixedChannelPool[] pools;
+    private final AtomicInteger next = new AtomicInteger();
+    //所有池的预热都结束时完成，有连接建立失败时以第一个失败原因失败
+    private final Promise<Void> warmUp;
+
+    /**
+     * @param bootstrap      必须已经设置好group、channel和remoteAddress
+     * @param initializer    每个新连接的处理器，一般是一个ChannelInitializer，必须可以共享
+     * @param minConnections 最少保持的连接数，平均分到每个EventLoop
+     * @param maxConnections 最多的连接数，平均分到每个EventLoop，比EventLoop少时只用前maxConnections个
+     */
+    public ClientChannelPool(Bootstrap bootstrap, ChannelHandler initializer, int minConnections,
+                             int maxConnections, long acquireTimeoutMillis) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections: " + maxConnections + " (expected: >= 1)");
+        }
+        List<EventLoop> loops = new ArrayList<EventLoop>();
+        for (EventExecutor executor : bootstrap.config().group()) {
+            if (loops.size() == maxConnections) {
+                break;
+            }
+            loops.add((EventLoop) executor);
+        }
+        this.loops = loops.toArray(new EventLoop[0]);
+        this.pools = new FixedChannelPool[this.loops.length];
+        this.warmUp = this.loops[0].newPromise();
+        AtomicInteger warming = new AtomicInteger(pools.length);
+
+        AbstractChannelPoolHandler handler = new AbstractChannelPoolHandler() {
+            @Override
+            public void channelCreated(Channel ch) throws Exception {
+                ch.pipeline().addLast(initializer);
+            }
+        };
+        for (int i = 0; i < pools.length; i++) {
+            int max = share(maxConnections, i);
+            pools[i] = new FixedChannelPool(bootstrap.clone(this.loops[i]), handler, ChannelHealthChecker.ACTIVE,
+                    FixedChannelPool.AcquireTimeoutAction.FAIL, acquireTimeoutMillis, max, MAX_PENDING_ACQUIRES,
+                    true, true);
+            warmUp(pools[i], Math.min(max, share(minConnections, i)), () -> {
+                if (warming.decrementAndGet() == 0) {
+                    warmUp.trySuccess(null);
+                }
+            });
+        }
+    }
+
+    /**
+     * 预热结束的future，预热的连接这时已经还回池里
+     */
+    public Future<Void> warmUpFuture() {
+        return warmUp;
+    }
+
+    public Future<Channel> acquire() {
+        return select().acquire();
+    }
+
+    /**
+     * 用完的连接必须还回来，不能直接close
+     */
+    public Future<Void> release(Channel channel) {
+        for (int i = 0; i < loops.length; i++) {
+            if (loops[i] == channel.eventLoop()) {
+                return pools[i].release(channel);
+            }
+        }
+        throw new IllegalArgumentException("channel does not belong to this pool: " + channel);
+    }
+
+    @Override
+    public void close() {
+        for (FixedChannelPool pool : pools) {
+            pool.close();
+        }
+    }
+
+    private FixedChannelPool select() {
+        for (int i = 0; i < loops.length; i++) {
+            if (loops[i].inEventLoop()) {
+                return pools[i];
+            }
+        }
+        //从轮到的池开始找借出连接最少的，避免一个池的连接都借光了还在排队，别的池却是空闲的
+        int start = Math.abs(next.getAndIncrement() % pools.length);
+        FixedChannelPool selected = pools[start];
+        for (int i = 1; i < pools.length; i++) {
+            FixedChannelPool pool = pools[(start + i) % pools.length];
+            if (pool.acquiredChannelCount() < selected.acquiredChannelCount()) {
+                selected = pool;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 把total平均分给各个EventLoop，除不尽的部分分给前面的
+     */
+    private int share(int total, int index) {
+        return total / loops.length + (index < total % loops.length ? 1 : 0);
+    }
+
+    /**
+     * 同时借出count个连接迫使连接池建好它们，全部建好后再一起还回去，然后调用done
+     */
+    private void warmUp(FixedChannelPool pool, int count, Runnable done) {
+        if (count <= 0) {
+            done.run();
+            return;
+        }
+        List<Channel> acquired = new ArrayList<Channel>(count);
+        AtomicInteger remaining = new AtomicInteger(count);
+        for (int i = 0; i < count; i++) {
+            pool.acquire().addListener((Future<Channel> future) -> {
+                if (future.isSuccess()) {
+                    synchronized (acquired) {
+                        acquired.add(future.getNow());
+                    }
+                } else {
+                    warmUp.tryFailure(future.cause());
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    synchronized (acquired) {
+                        for (Channel channel : acquired) {
+                            pool.release(channel);
+                        }
+                    }
+                    done.run();
+                }
+            });
+        }
+    }
+}
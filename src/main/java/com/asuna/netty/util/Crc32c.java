@@ -0,0 +1,154 @@
+package com.asuna.netty.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * 直接在ByteBuf上算CRC32C，不拷贝数据
+ * 把ByteBuf的nioBuffers()逐段交给JDK 9以后的java.util.zip.CRC32C，它由JIT内联成CPU的CRC32指令，
+ * 直接内存和CompositeByteBuf也一样不用先拷出来
+ * 项目按Java 8编译，CRC32C通过MethodHandle查找；运行在Java 8上时退回纯Java的查表实现，结果相同，只是慢
+ * 每个线程复用一个Checksum对象
+ */
+public final class Crc32c {
+    private static final MethodHandle NEW_CHECKSUM;
+    private static final MethodHandle UPDATE_BUFFER;
+    private static final boolean INTRINSIC;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> type;
+        boolean intrinsic;
+        try {
+            type = Class.forName("java.util.zip.CRC32C");
+            intrinsic = true;
+        } catch (ClassNotFoundException e) {
+            type = TableCrc32c.class;
+            intrinsic = false;
+        }
+        try {
+            NEW_CHECKSUM = lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Checksum.class));
+            UPDATE_BUFFER = lookup.findVirtual(type, "update", MethodType.methodType(void.class, ByteBuffer.class))
+                    .asType(MethodType.methodType(void.class, Checksum.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        INTRINSIC = intrinsic;
+    }
+
+    private static final FastThreadLocal<Checksum> CHECKSUM = new FastThreadLocal<Checksum>() {
+        @Override
+        protected Checksum initialValue() {
+            return newChecksum();
+        }
+    };
+
+    private Crc32c() {
+    }
+
+    /**
+     * 是否用的是JDK自带（硬件加速）的CRC32C
+     */
+    public static boolean isIntrinsic() {
+        return INTRINSIC;
+    }
+
+    public static Checksum newChecksum() {
+        try {
+            return (Checksum) NEW_CHECKSUM.invokeExact();
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * buf里[index, index + length)的CRC32C，不改变buf的读写位置
+     */
+    public static int compute(ByteBuf buf, int index, int length) {
+        Checksum checksum = CHECKSUM.get();
+        checksum.reset();
+        update(checksum, buf, index, length);
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * 把buf里的一段累加进checksum，用来跨多个ByteBuf增量计算
+     */
+    public static void update(Checksum checksum, ByteBuf buf, int index, int length) {
+        if (length == 0) {
+            return;
+        }
+        try {
+            if (buf.nioBufferCount() == 1) {
+                UPDATE_BUFFER.invokeExact(checksum, buf.nioBuffer(index, length));
+            } else {
+                for (ByteBuffer buffer : buf.nioBuffers(index, length)) {
+                    UPDATE_BUFFER.invokeExact(checksum, buffer);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Java 8上的纯Java实现（Castagnoli多项式，反射位序，逐字节查表）
+     */
+    public static final class TableCrc32c implements Checksum {
+        private static final int[] TABLE = new int[256];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                int crc = i;
+                for (int j = 0; j < 8; j++) {
+                    crc = (crc >>> 1) ^ (0x82F63B78 & -(crc & 1));
+                }
+                TABLE[i] = crc;
+            }
+        }
+
+        private int crc = 0xFFFFFFFF;
+
+        @Override
+        public void update(int b) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            int crc = this.crc;
+            for (int i = off; i < off + len; i++) {
+                crc = (crc >>> 8) ^ TABLE[(crc ^ b[i]) & 0xFF];
+            }
+            this.crc = crc;
+        }
+
+        public void update(ByteBuffer buffer) {
+            int crc = this.crc;
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                crc = (crc >>> 8) ^ TABLE[(crc ^ buffer.get(i)) & 0xFF];
+            }
+            this.crc = crc;
+            buffer.position(buffer.limit());
+        }
+
+        @Override
+        public long getValue() {
+            return ~crc & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public void reset() {
+            crc = 0xFFFFFFFF;
+        }
+    }
+}
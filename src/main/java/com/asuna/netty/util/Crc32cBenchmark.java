@@ -0,0 +1,84 @@
+package com.asuna.netty.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * 测量给帧加CRC32C的开销：Crc32c.compute在堆内存、直接内存和CompositeByteBuf上的吞吐量，
+ * 和纯Java的查表实现、java.util.zip.CRC32对比；10Gb/s大约是1.25GB/s，单核吞吐远高于它就说明校验几乎不要钱
+ * 用法：java Crc32cBenchmark [frameSize]，默认4096字节
+ */
+public class Crc32cBenchmark {
+    private static final long TOTAL_BYTES = 2L * 1024 * 1024 * 1024;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int frameSize = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+        byte[] data = new byte[frameSize];
+        ThreadLocalRandom.current().nextBytes(data);
+
+        ByteBuf heap = alloc.heapBuffer(frameSize).writeBytes(data);
+        ByteBuf direct = alloc.directBuffer(frameSize).writeBytes(data);
+        //和编码器写出的一样：头、内容、尾分成几块
+        CompositeByteBuf composite = alloc.compositeBuffer();
+        int half = frameSize / 2;
+        composite.addComponents(true, alloc.directBuffer(half).writeBytes(data, 0, half),
+                alloc.directBuffer(frameSize - half).writeBytes(data, half, frameSize - half));
+
+        System.out.println("frame size " + frameSize + " bytes, intrinsic CRC32C: " + Crc32c.isIntrinsic());
+        int expected = Crc32c.compute(heap, 0, frameSize);
+        run("Crc32c heap      ", frameSize, () -> Crc32c.compute(heap, 0, frameSize), expected);
+        run("Crc32c direct    ", frameSize, () -> Crc32c.compute(direct, 0, frameSize), expected);
+        run("Crc32c composite ", frameSize, () -> Crc32c.compute(composite, 0, frameSize), expected);
+        Crc32c.TableCrc32c table = new Crc32c.TableCrc32c();
+        run("table CRC32C     ", frameSize, () -> {
+            table.reset();
+            table.update(data, 0, frameSize);
+            return (int) table.getValue();
+        }, expected);
+        CRC32 crc32 = new CRC32();
+        ByteBuffer nio = direct.nioBuffer(0, frameSize);
+        run("java.util.zip.CRC32 direct", frameSize, () -> {
+            crc32.reset();
+            crc32.update(nio.duplicate());
+            return (int) crc32.getValue();
+        }, null);
+
+        heap.release();
+        direct.release();
+        composite.release();
+    }
+
+    private interface Task {
+        int run();
+    }
+
+    private static void run(String name, int frameSize, Task task, Integer expected) {
+        long iterations = TOTAL_BYTES / frameSize;
+        //table实现慢很多，少跑一些
+        if (name.startsWith("table")) {
+            iterations /= 16;
+        }
+        int result = 0;
+        double best = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (long i = 0; i < iterations; i++) {
+                result ^= task.run();
+            }
+            long elapsed = System.nanoTime() - start;
+            best = Math.max(best, iterations * frameSize / (elapsed / 1e9) / (1 << 30));
+        }
+        if (expected != null && task.run() != expected) {
+            throw new IllegalStateException(name + " computed a different checksum");
+        }
+        System.out.printf("%s %6.2f GB/s (%d)%n", name, best, result & 1);
+    }
+}
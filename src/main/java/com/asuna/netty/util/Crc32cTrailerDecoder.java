@@ -0,0 +1,42 @@
+package com.asuna.netty.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageDecoder;
+
+import java.util.List;
+
+/**
+ * 放在拆帧的解码器后面，校验每个帧末尾4字节的CRC32C，输出去掉校验码的retainedSlice，不拷贝
+ * 校验不通过抛CorruptedFrameException；不是ByteBuf的消息（比如流式的FrameChunk）原样往后传
+ */
+@ChannelHandler.Sharable
+public class Crc32cTrailerDecoder extends MessageToMessageDecoder<ByteBuf> {
+    public static final Crc32cTrailerDecoder INSTANCE = new Crc32cTrailerDecoder();
+    public static final int TRAILER_LENGTH = 4;
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        out.add(verify(msg).retain());
+    }
+
+    /**
+     * 校验frame末尾的CRC32C，返回去掉校验码的切片（没有增加引用计数）
+     */
+    public static ByteBuf verify(ByteBuf frame) {
+        int length = frame.readableBytes() - TRAILER_LENGTH;
+        if (length < 0) {
+            throw new CorruptedFrameException("frame too short for a crc32c trailer: " + frame.readableBytes());
+        }
+        int index = frame.readerIndex();
+        int expected = frame.getInt(index + length);
+        int actual = Crc32c.compute(frame, index, length);
+        if (expected != actual) {
+            throw new CorruptedFrameException(String.format("crc32c mismatch: expected %08x, actual %08x",
+                    expected, actual));
+        }
+        return frame.slice(index, length);
+    }
+}
@@ -0,0 +1,40 @@
+package com.asuna.netty.util;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+/**
+ * 同一个连接上暂停读的原因，按位记录在Channel的属性里
+ * 出站缓冲满了和业务线程积压都会暂停读，各自只清掉自己的那一位，所有原因都清掉之后才恢复autoRead，
+ * 否则一个处理器恢复读会把另一个处理器的暂停覆盖掉
+ * 只能在连接的I/O线程上调用
+ */
+public final class ReadSuspension {
+    //出站缓冲超过高水位，见BackpressureHandler
+    public static final int UNWRITABLE = 1;
+    //业务线程的任务队列积压，见BusinessBackpressureHandler
+    public static final int BUSINESS_BACKLOG = 1 << 1;
+
+    private static final AttributeKey<Integer> REASONS = AttributeKey.valueOf(ReadSuspension.class, "REASONS");
+
+    private ReadSuspension() {
+    }
+
+    public static void suspend(Channel channel, int reason) {
+        update(channel, reasons(channel) | reason);
+    }
+
+    public static void resume(Channel channel, int reason) {
+        update(channel, reasons(channel) & ~reason);
+    }
+
+    private static int reasons(Channel channel) {
+        Integer reasons = channel.attr(REASONS).get();
+        return reasons == null ? 0 : reasons;
+    }
+
+    private static void update(Channel channel, int reasons) {
+        channel.attr(REASONS).set(reasons);
+        channel.config().setAutoRead(reasons == 0);
+    }
+}